@@ -0,0 +1,83 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.dataset.SyntheticDataset;
+import study.querydsl.dataset.SyntheticDatasetLoader;
+import study.querydsl.dataset.SyntheticDatasetSpec;
+
+import javax.persistence.EntityManager;
+import java.util.function.Supplier;
+
+//벤치마크마다 in-memory H2 위에 애플리케이션 컨텍스트를 띄우고 회원을 채운다.
+//매핑/쿼리 방식 자체를 비교하기 위해 2차 캐시, 검색 결과 캐시, SQL 로그는 끈다.
+//회원 데이터는 SyntheticDataset으로 만들므로 seed가 같으면 실행마다 같은 데이터로 측정한다.
+public class BenchmarkContext implements AutoCloseable {
+
+    private static final int TEAM_COUNT = 10;
+    private static final int CHUNK_SIZE = 1000;
+    private static final long SEED = 42;
+
+    private final ConfigurableApplicationContext context;
+    private final SyntheticDataset dataset;
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTx;
+
+    private BenchmarkContext(ConfigurableApplicationContext context, SyntheticDataset dataset) {
+        this.context = context;
+        this.dataset = dataset;
+        this.em = context.getBean(EntityManager.class);
+        this.readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public static BenchmarkContext start(String name, int rows) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=bench",
+                        "--spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                        "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                        "--member.search-cache.enabled=false",
+                        "--logging.level.org.hibernate.SQL=warn");
+        SyntheticDatasetSpec spec = new SyntheticDatasetSpec();
+        spec.setMembers(rows);
+        spec.setTeams(TEAM_COUNT);
+        spec.setSeed(SEED);
+        BenchmarkContext benchmarkContext = new BenchmarkContext(context, new SyntheticDataset(spec));
+        benchmarkContext.seed();
+        return benchmarkContext;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    //벤치마크 파라미터(username 등)를 실제로 들어 있는 값으로 고를 때 쓴다
+    public SyntheticDataset dataset() {
+        return dataset;
+    }
+
+    public EntityManager em() {
+        return em;
+    }
+
+    //측정 대상은 읽기 전용 트랜잭션 안에서 실행한다 (영속성 컨텍스트 비용 포함)
+    public <T> T readOnly(Supplier<T> action) {
+        return readOnlyTx.execute(status -> action.get());
+    }
+
+    private void seed() {
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        new SyntheticDatasetLoader(em, tx, CHUNK_SIZE).load(dataset);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,66 @@
+package study.querydsl.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.service.MemberTeamJsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+///v1/members 응답 직렬화: ObjectMapper(BeanSerializer) vs MemberTeamJsonWriter
+//같은 데이터를 같은 출력 버퍼에 쓴다. DB는 쓰지 않는다.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MemberTeamJsonBenchmark {
+
+    @Param({"100", "10000"})
+    int rows;
+
+    private List<MemberTeamDto> data;
+    private ObjectWriter objectWriter;
+    private MemberTeamJsonWriter jsonWriter;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            //team이 없는 회원도 섞는다
+            boolean hasTeam = i % 10 != 0;
+            data.add(new MemberTeamDto((long) i, "member" + i, i % 100,
+                    hasTeam ? (long) (i % 10) : null, hasTeam ? "team" + (i % 10) : null));
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, MemberTeamDto.class));
+        jsonWriter = new MemberTeamJsonWriter(objectMapper);
+        out = new ByteArrayOutputStream(rows * 100);
+    }
+
+    @Benchmark
+    public int objectMapper() throws IOException {
+        out.reset();
+        objectWriter.writeValue(out, data);
+        return out.size();
+    }
+
+    @Benchmark
+    public int memberTeamJsonWriter() throws IOException {
+        out.reset();
+        jsonWriter.writeArray(data, out);
+        return out.size();
+    }
+}
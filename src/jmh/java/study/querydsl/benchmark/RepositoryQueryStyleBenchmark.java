@@ -0,0 +1,99 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+//MemberJpaRepository의 JPQL 버전과 Querydsl 버전을 짝지어 비교한다.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RepositoryQueryStyleBenchmark {
+
+    @Param({"100", "10000"})
+    int rows;
+
+    private BenchmarkContext context;
+    private MemberJpaRepository repository;
+    private Long memberId;
+    private String username;
+    private MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("querystyle" + rows, rows);
+        repository = context.getBean(MemberJpaRepository.class);
+        String middleUsername = context.dataset().member(rows / 2).getUsername();
+        memberId = context.readOnly(() -> repository.findByUsername(middleUsername).get(0).getId());
+        username = context.dataset().member(1).getUsername();
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team1");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Member> findAll_jpql() {
+        return context.readOnly(() -> repository.findAll());
+    }
+
+    @Benchmark
+    public List<Member> findAll_querydsl() {
+        return context.readOnly(() -> repository.findAll_Querydsl());
+    }
+
+    @Benchmark
+    public List<Member> findByUsername_jpql() {
+        return context.readOnly(() -> repository.findByUsername(username));
+    }
+
+    @Benchmark
+    public List<Member> findByUsername_querydsl() {
+        return context.readOnly(() -> repository.findByUsername_Querydsl(username));
+    }
+
+    @Benchmark
+    public Optional<Member> findById_emFind() {
+        return context.readOnly(() -> {
+            context.em().clear();
+            return repository.findById(memberId);
+        });
+    }
+
+    @Benchmark
+    public Member findById_querydsl() {
+        return context.readOnly(() -> repository.findById_Querydsl(memberId));
+    }
+
+    //search는 shape별 JPQL 템플릿, searchByBuilder는 매번 Querydsl로 생성
+    @Benchmark
+    public List<MemberTeamDto> search_template() {
+        return context.readOnly(() -> repository.search(condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search_querydslBuilder() {
+        return context.readOnly(() -> repository.searchByBuilder(condition));
+    }
+}
@@ -0,0 +1,146 @@
+package study.querydsl.loadtest;
+
+import study.querydsl.dataset.SyntheticDataset;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//GET /v1/members 에 closed-loop(고정 동시성) 또는 open-loop(고정 도착률)로 요청을 보낸다.
+public class LoadGenerator {
+
+    private final LoadTestOptions options;
+    private final URI endpoint;
+    private final SyntheticDataset dataset;
+    private final ShapeMix mix;
+    private final HttpClient client;
+
+    public LoadGenerator(LoadTestOptions options, URI endpoint, SyntheticDataset dataset) {
+        this.options = options;
+        this.endpoint = endpoint;
+        this.dataset = dataset;
+        this.mix = ShapeMix.parse(options.getMix());
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    //seed가 같으면 같은 순서의 요청을 보낸다 (closed 모드는 스레드별로 같은 순서)
+    public LoadResult run(Duration duration, long seed) throws InterruptedException {
+        return options.getMode() == LoadTestOptions.Mode.CLOSED
+                ? runClosed(duration, seed)
+                : runOpen(duration, seed);
+    }
+
+    private LoadResult runClosed(Duration duration, long seed) throws InterruptedException {
+        LoadResult result = new LoadResult();
+        int concurrency = options.getConcurrency();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "load-closed");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (int i = 0; i < concurrency; i++) {
+            Random random = new Random(seed + i);
+            workers.execute(() -> {
+                while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                    SearchShape shape = mix.next(random);
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request(shape, random), HttpResponse.BodyHandlers.discarding());
+                        record(result, shape, response.statusCode(), System.nanoTime() - sent);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        result.failure(shape);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(duration.plus(options.getRequestTimeout()).toMillis() + 1000, TimeUnit.MILLISECONDS)) {
+            workers.shutdownNow();
+        }
+        result.finish(System.nanoTime() - start);
+        return result;
+    }
+
+    //응답 시간은 실제로 보낸 시각이 아니라 보냈어야 할 시각부터 잰다.
+    //서버가 밀려서 요청이 늦게 나가도 그 지연이 측정값에 들어간다 (coordinated omission 보정).
+    private LoadResult runOpen(Duration duration, long seed) throws InterruptedException {
+        LoadResult result = new LoadResult();
+        Random random = new Random(seed);
+        int maxInFlight = options.getMaxInFlight();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) options.getRate();
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            SearchShape shape = mix.next(random);
+            HttpRequest request = request(shape, random);
+            if (!inFlight.tryAcquire()) {
+                result.drop(shape);
+                continue;
+            }
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        try {
+                            if (e != null) {
+                                result.failure(shape);
+                            } else {
+                                record(result, shape, response.statusCode(), System.nanoTime() - intended);
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+        }
+
+        //남은 응답을 기다린다
+        if (inFlight.tryAcquire(maxInFlight, options.getRequestTimeout().toMillis() + 1000, TimeUnit.MILLISECONDS)) {
+            inFlight.release(maxInFlight);
+        }
+        result.finish(System.nanoTime() - start);
+        return result;
+    }
+
+    private HttpRequest request(SearchShape shape, Random random) {
+        String query = shape.query(random, dataset);
+        return HttpRequest.newBuilder(query.isEmpty() ? endpoint : URI.create(endpoint + "?" + query))
+                .timeout(options.getRequestTimeout())
+                //서버 응답 압축(server.compression)까지 포함해서 잰다
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+    }
+
+    private void record(LoadResult result, SearchShape shape, int status, long latencyNanos) {
+        if (status >= 200 && status < 300) {
+            result.success(shape, latencyNanos);
+        } else {
+            result.error(shape);
+        }
+    }
+}
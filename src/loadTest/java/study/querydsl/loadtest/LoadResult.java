@@ -0,0 +1,142 @@
+package study.querydsl.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+//검색 조건 조합별 응답 시간과 결과 수를 모은다. 응답 시간은 2xx 응답만 기록한다
+public class LoadResult {
+
+    private final Map<SearchShape, ShapeStats> shapes = new EnumMap<>(SearchShape.class);
+    private long elapsedNanos;
+
+    public LoadResult() {
+        //측정 중에는 map 구조가 바뀌지 않도록 미리 채워둔다
+        for (SearchShape shape : SearchShape.values()) {
+            shapes.put(shape, new ShapeStats());
+        }
+    }
+
+    void success(SearchShape shape, long latencyNanos) {
+        shapes.get(shape).success(latencyNanos);
+    }
+
+    void error(SearchShape shape) {
+        shapes.get(shape).error();
+    }
+
+    void failure(SearchShape shape) {
+        shapes.get(shape).failure();
+    }
+
+    void drop(SearchShape shape) {
+        shapes.get(shape).drop();
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public ShapeStats get(SearchShape shape) {
+        return shapes.get(shape);
+    }
+
+    public ShapeStats total() {
+        ShapeStats total = new ShapeStats();
+        shapes.values().forEach(total::merge);
+        return total;
+    }
+
+    public static class ShapeStats {
+
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+        private long failures;
+        private long dropped;
+
+        synchronized void success(long latencyNanos) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+        }
+
+        //5xx, 4xx 응답
+        synchronized void error() {
+            errors++;
+        }
+
+        //연결 실패, 요청 timeout
+        synchronized void failure() {
+            failures++;
+        }
+
+        synchronized void drop() {
+            dropped++;
+        }
+
+        synchronized void merge(ShapeStats other) {
+            long[] otherLatencies;
+            synchronized (other) {
+                otherLatencies = Arrays.copyOf(other.latencies, other.size);
+                errors += other.errors;
+                failures += other.failures;
+                dropped += other.dropped;
+            }
+            for (long latency : otherLatencies) {
+                success(latency);
+            }
+        }
+
+        public synchronized long getSuccesses() {
+            return size;
+        }
+
+        public synchronized long getErrors() {
+            return errors;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        public synchronized long getDropped() {
+            return dropped;
+        }
+
+        public synchronized long getRequests() {
+            return size + errors + failures + dropped;
+        }
+
+        //nearest-rank 방식. 기록이 없으면 0
+        public synchronized long[] percentiles(double... ratios) {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            long[] result = new long[ratios.length];
+            for (int i = 0; i < ratios.length; i++) {
+                if (sorted.length == 0) {
+                    continue;
+                }
+                int rank = (int) Math.ceil(ratios[i] * sorted.length);
+                result[i] = sorted[Math.min(Math.max(rank - 1, 0), sorted.length - 1)];
+            }
+            return result;
+        }
+
+        public synchronized double meanNanos() {
+            if (size == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += latencies[i];
+            }
+            return sum / size;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.dataset.SyntheticDataset;
+import study.querydsl.dataset.SyntheticDatasetSpec;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+//./gradlew loadTest
+//loadtest 프로파일(메모리 H2 + InitMember)로 앱을 빈 포트에 띄우고, warmup 후 측정한 결과를 파일로 남긴다.
+//외부 DB나 네트워크 없이 돌아가므로 변경 전후에 같은 seed로 돌려서 회귀를 확인한다.
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        List<String> applicationArgs = new ArrayList<>();
+        applicationArgs.add("--spring.profiles.active=loadtest");
+        applicationArgs.add("--server.port=0");
+        applicationArgs.add("--init.member.count=" + options.getMembers());
+        applicationArgs.add("--init.member.teams=" + options.getTeams());
+        applicationArgs.add("--init.member.seed=" + options.getDataSeed());
+        applicationArgs.addAll(options.getApplicationArgs());
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .run(applicationArgs.toArray(new String[0]))) {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            //InitMember와 같은 spec으로 만들어서 실제로 들어 있는 값으로 검색한다
+            SyntheticDatasetSpec spec = new SyntheticDatasetSpec();
+            spec.setMembers(options.getMembers());
+            spec.setTeams(options.getTeams());
+            spec.setSeed(options.getDataSeed());
+            LoadGenerator generator = new LoadGenerator(options, URI.create("http://localhost:" + port + "/v1/members"),
+                    new SyntheticDataset(spec));
+
+            //JIT, 커넥션 풀, 캐시를 데운다. seed를 다르게 줘서 측정 구간과 같은 요청이 캐시에 남지 않게 한다
+            if (!options.getWarmup().isZero()) {
+                System.out.println("warmup " + options.getWarmup().getSeconds() + "s");
+                generator.run(options.getWarmup(), ~options.getSeed());
+            }
+
+            System.out.println("measure " + options.getDuration().getSeconds() + "s (" + options.getMode().name().toLowerCase() + ")");
+            LocalDateTime startedAt = LocalDateTime.now();
+            LoadResult result = generator.run(options.getDuration(), options.getSeed());
+
+            LoadTestReport report = new LoadTestReport(options, result, startedAt);
+            Path file = report.write();
+            System.out.println(report.summary());
+            System.out.println("result: " + file.toAbsolutePath());
+        }
+    }
+}
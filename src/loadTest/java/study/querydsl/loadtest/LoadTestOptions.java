@@ -0,0 +1,157 @@
+package study.querydsl.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//--이름=값 형태의 인자를 읽는다. build.gradle의 loadTest 태스크가 -Pload.이름=값 을 그대로 넘겨준다.
+//app. 으로 시작하는 인자는 앞부분을 떼고 스프링 설정으로 넘긴다 (예: --app.member.search-cache.enabled=false)
+public class LoadTestOptions {
+
+    public enum Mode {
+        //concurrency개의 스레드가 응답을 받자마자 다음 요청을 보낸다
+        CLOSED,
+        //응답과 상관없이 초당 rate개의 요청을 일정한 간격으로 보낸다
+        OPEN
+    }
+
+    private Mode mode = Mode.CLOSED;
+    private int concurrency = 16;
+    private int rate = 200;
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration requestTimeout = Duration.ofSeconds(10);
+    //open 모드에서 이보다 많이 밀리면 요청을 보내지 않고 dropped로 센다
+    private int maxInFlight = 1000;
+    private int members = 100_000;
+    //0이면 SyntheticDatasetSpec 기본값(회원 50명당 팀 1개)
+    private int teams;
+    //데이터 seed. seed는 요청 순서에 쓴다
+    private long dataSeed = 42;
+    private String mix = "username:4,age:3,teamAge:2,prefix:1";
+    private long seed = 42;
+    private String outputDir = "build/results/loadtest";
+    private final List<String> applicationArgs = new ArrayList<>();
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("--이름=값 형태가 아닙니다: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            options.set(name, value);
+        }
+        if (options.concurrency < 1 || options.rate < 1 || options.maxInFlight < 1 || options.members < 1) {
+            throw new IllegalArgumentException("concurrency, rate, max-in-flight, members는 1 이상이어야 합니다");
+        }
+        return options;
+    }
+
+    private void set(String name, String value) {
+        if (name.startsWith("app.")) {
+            applicationArgs.add("--" + name.substring("app.".length()) + "=" + value);
+            return;
+        }
+        switch (name) {
+            case "mode":
+                mode = Mode.valueOf(value.toUpperCase());
+                break;
+            case "concurrency":
+                concurrency = Integer.parseInt(value);
+                break;
+            case "rate":
+                rate = Integer.parseInt(value);
+                break;
+            case "duration":
+                duration = Duration.ofSeconds(Long.parseLong(value));
+                break;
+            case "warmup":
+                warmup = Duration.ofSeconds(Long.parseLong(value));
+                break;
+            case "request-timeout-ms":
+                requestTimeout = Duration.ofMillis(Long.parseLong(value));
+                break;
+            case "max-in-flight":
+                maxInFlight = Integer.parseInt(value);
+                break;
+            case "members":
+                members = Integer.parseInt(value);
+                break;
+            case "teams":
+                teams = Integer.parseInt(value);
+                break;
+            case "data-seed":
+                dataSeed = Long.parseLong(value);
+                break;
+            case "mix":
+                mix = value;
+                break;
+            case "seed":
+                seed = Long.parseLong(value);
+                break;
+            case "output-dir":
+                outputDir = value;
+                break;
+            default:
+                throw new IllegalArgumentException("알 수 없는 옵션입니다: " + name);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getMembers() {
+        return members;
+    }
+
+    public int getTeams() {
+        return teams;
+    }
+
+    public long getDataSeed() {
+        return dataSeed;
+    }
+
+    public String getMix() {
+        return mix;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getOutputDir() {
+        return outputDir;
+    }
+
+    public List<String> getApplicationArgs() {
+        return applicationArgs;
+    }
+}
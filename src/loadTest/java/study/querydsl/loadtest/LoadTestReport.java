@@ -0,0 +1,115 @@
+package study.querydsl.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//결과를 output-dir/loadtest-{시각}.json 으로 남긴다. 실행마다 파일이 따로 생기므로 변경 전후를 비교할 수 있다
+public class LoadTestReport {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p95", "p99", "p999"};
+
+    private final LoadTestOptions options;
+    private final LoadResult result;
+    private final LocalDateTime startedAt;
+
+    public LoadTestReport(LoadTestOptions options, LoadResult result, LocalDateTime startedAt) {
+        this.options = options;
+        this.result = result;
+        this.startedAt = startedAt;
+    }
+
+    public Path write() throws IOException {
+        Path dir = Paths.get(options.getOutputDir());
+        Files.createDirectories(dir);
+        Path file = dir.resolve("loadtest-" + startedAt.format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file.toFile(), toMap());
+        return file;
+    }
+
+    public String summary() {
+        LoadResult.ShapeStats total = result.total();
+        long[] percentiles = total.percentiles(PERCENTILES);
+        return String.format("requests=%d ok=%d errors=%d failures=%d dropped=%d throughput=%.1f/s p50=%.2fms p95=%.2fms p99=%.2fms p999=%.2fms",
+                total.getRequests(), total.getSuccesses(), total.getErrors(), total.getFailures(), total.getDropped(),
+                throughput(total), millis(percentiles[0]), millis(percentiles[1]), millis(percentiles[2]), millis(percentiles[3]));
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", startedAt.toString());
+        report.put("options", options());
+        report.put("elapsedSeconds", result.getElapsedNanos() / 1e9);
+        report.put("total", stats(result.total()));
+
+        Map<String, Object> shapes = new LinkedHashMap<>();
+        for (SearchShape shape : SearchShape.values()) {
+            LoadResult.ShapeStats stats = result.get(shape);
+            if (stats.getRequests() > 0) {
+                shapes.put(shape.getKey(), stats(stats));
+            }
+        }
+        report.put("shapes", shapes);
+        return report;
+    }
+
+    private Map<String, Object> options() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("mode", options.getMode().name().toLowerCase());
+        if (options.getMode() == LoadTestOptions.Mode.CLOSED) {
+            values.put("concurrency", options.getConcurrency());
+        } else {
+            values.put("rate", options.getRate());
+            values.put("maxInFlight", options.getMaxInFlight());
+        }
+        values.put("durationSeconds", options.getDuration().getSeconds());
+        values.put("warmupSeconds", options.getWarmup().getSeconds());
+        values.put("members", options.getMembers());
+        values.put("teams", options.getTeams());
+        values.put("dataSeed", options.getDataSeed());
+        values.put("mix", options.getMix());
+        values.put("seed", options.getSeed());
+        values.put("applicationArgs", options.getApplicationArgs());
+        return values;
+    }
+
+    private Map<String, Object> stats(LoadResult.ShapeStats stats) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("requests", stats.getRequests());
+        values.put("ok", stats.getSuccesses());
+        values.put("errors", stats.getErrors());
+        values.put("failures", stats.getFailures());
+        values.put("dropped", stats.getDropped());
+        values.put("throughputPerSecond", throughput(stats));
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        long[] percentiles = stats.percentiles(PERCENTILES);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            latency.put(PERCENTILE_NAMES[i], millis(percentiles[i]));
+        }
+        latency.put("max", millis(stats.percentiles(1.0)[0]));
+        latency.put("mean", stats.meanNanos() / TimeUnit.MILLISECONDS.toNanos(1));
+        values.put("latencyMillis", latency);
+        return values;
+    }
+
+    private double throughput(LoadResult.ShapeStats stats) {
+        return result.getElapsedNanos() == 0 ? 0 : stats.getSuccesses() * 1e9 / result.getElapsedNanos();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
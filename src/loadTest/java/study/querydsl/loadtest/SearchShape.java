@@ -0,0 +1,80 @@
+package study.querydsl.loadtest;
+
+import study.querydsl.dataset.SyntheticDataset;
+
+import java.util.Random;
+
+//부하를 줄 MemberSearchCondition 조합. 값은 InitMember가 넣은 SyntheticDataset과 같은 분포로 고르므로
+//큰 팀, 흔한 나이, 흔한 이름이 더 자주 검색된다.
+public enum SearchShape {
+
+    USERNAME("username") {
+        @Override
+        String query(Random random, SyntheticDataset dataset) {
+            return "username=" + dataset.sampleUsername(random);
+        }
+    },
+    TEAM("team") {
+        @Override
+        String query(Random random, SyntheticDataset dataset) {
+            return "teamName=" + dataset.sampleTeamName(random);
+        }
+    },
+    AGE("age") {
+        @Override
+        String query(Random random, SyntheticDataset dataset) {
+            int age = dataset.sampleAge(random);
+            return "ageGoe=" + age + "&ageLoe=" + age;
+        }
+    },
+    TEAM_AGE("teamAge") {
+        @Override
+        String query(Random random, SyntheticDataset dataset) {
+            int age = dataset.sampleAge(random);
+            return "teamName=" + dataset.sampleTeamName(random) + "&ageGoe=" + age + "&ageLoe=" + (age + 2);
+        }
+    },
+    PREFIX("prefix") {
+        @Override
+        String query(Random random, SyntheticDataset dataset) {
+            //member12345 -> member123 (수백 건), kim -> kim (흔한 이름 전체)
+            String username = dataset.sampleUsername(random);
+            return "usernameStartsWith=" + username.substring(0, Math.min(username.length(), 9));
+        }
+    },
+    CONTAINS("contains") {
+        @Override
+        String query(Random random, SyntheticDataset dataset) {
+            //3글자 이상이어야 trigram 인덱스를 탄다
+            return "usernameContains=" + (100 + random.nextInt(900));
+        }
+    },
+    //조건 없이 전체 조회. 기본 mix에는 넣지 않는다
+    ALL("all") {
+        @Override
+        String query(Random random, SyntheticDataset dataset) {
+            return "";
+        }
+    };
+
+    private final String key;
+
+    SearchShape(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    abstract String query(Random random, SyntheticDataset dataset);
+
+    static SearchShape fromKey(String key) {
+        for (SearchShape shape : values()) {
+            if (shape.key.equals(key)) {
+                return shape;
+            }
+        }
+        throw new IllegalArgumentException("알 수 없는 검색 조건 조합입니다: " + key);
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//"username:4,age:3" 형태의 가중치대로 SearchShape를 고른다
+public class ShapeMix {
+
+    private final SearchShape[] shapes;
+    private final int[] cumulativeWeights;
+
+    private ShapeMix(SearchShape[] shapes, int[] cumulativeWeights) {
+        this.shapes = shapes;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    public static ShapeMix parse(String mix) {
+        List<SearchShape> shapes = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split(":");
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            if (weight <= 0) {
+                continue;
+            }
+            shapes.add(SearchShape.fromKey(pair[0].trim()));
+            weights.add(weight);
+        }
+        if (shapes.isEmpty()) {
+            throw new IllegalArgumentException("mix에 가중치가 1 이상인 조합이 없습니다: " + mix);
+        }
+
+        int[] cumulative = new int[weights.size()];
+        int sum = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            sum += weights.get(i);
+            cumulative[i] = sum;
+        }
+        return new ShapeMix(shapes.toArray(new SearchShape[0]), cumulative);
+    }
+
+    public SearchShape next(Random random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return shapes[i];
+            }
+        }
+        return shapes[shapes.length - 1];
+    }
+}
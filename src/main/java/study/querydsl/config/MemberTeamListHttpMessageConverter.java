@@ -0,0 +1,66 @@
+package study.querydsl.config;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.service.MemberTeamJsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+//컨트롤러가 List<MemberTeamDto>를 반환하면 MappingJackson2HttpMessageConverter 대신
+//MemberTeamJsonWriter로 응답 스트림에 바로 쓴다. (쓰기 전용)
+public class MemberTeamListHttpMessageConverter extends AbstractGenericHttpMessageConverter<List<MemberTeamDto>> {
+
+    private final MemberTeamJsonWriter jsonWriter;
+
+    public MemberTeamListHttpMessageConverter(MemberTeamJsonWriter jsonWriter) {
+        super(new MediaType("application", "json", StandardCharsets.UTF_8),
+                new MediaType("application", "*+json", StandardCharsets.UTF_8));
+        this.jsonWriter = jsonWriter;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    //원소 타입을 알 수 없는 Class 기준 판단(canWrite(Class, MediaType))에는 참여하지 않는다
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return false;
+    }
+
+    //raw List나 다른 원소 타입의 List는 기본 Jackson 컨버터에 맡긴다
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (type == null) {
+            return false;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass())
+                && resolved.as(List.class).resolveGeneric(0) == MemberTeamDto.class
+                && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(List<MemberTeamDto> rows, Type type, HttpOutputMessage outputMessage) throws IOException {
+        jsonWriter.writeArray(rows, outputMessage.getBody());
+    }
+
+    @Override
+    public List<MemberTeamDto> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("read is not supported", inputMessage);
+    }
+
+    @Override
+    protected List<MemberTeamDto> readInternal(Class<? extends List<MemberTeamDto>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("read is not supported", inputMessage);
+    }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import study.querydsl.datasource.ReadWriteRoutingDataSource;
+import study.querydsl.datasource.ReplicaHealth;
+import study.querydsl.monitor.ConnectionPoolRegistry;
+import study.querydsl.monitor.JdbcMetricsProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+//datasource.replica.enabled=true 이면 spring.datasource(primary)와 datasource.replica 두 풀을 만들고
+//readOnly 트랜잭션을 replica로 보낸다 (ReadWriteRoutingDataSource).
+//두 풀은 bean으로 등록하지 않고 여기서 직접 JdbcMetricsProxy로 감싸고 ConnectionPoolRegistry에 따로 등록한다.
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig implements DisposableBean {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private ReplicaHealth replicaHealth;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 Environment environment,
+                                 ConnectionPoolRegistry connectionPoolRegistry,
+                                 @Value("${datasource.replica.url}") String replicaUrl,
+                                 @Value("${datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+                                 @Value("${datasource.replica.password:${spring.datasource.password:}}") String replicaPassword,
+                                 @Value("${datasource.replica.read-your-writes:true}") boolean readYourWrites,
+                                 @Value("${datasource.replica.retry-interval-ms:5000}") long retryIntervalMillis,
+                                 @Value("${datasource.replica.validation-timeout-seconds:1}") int validationTimeoutSeconds) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        pools.add(primary);
+
+        HikariDataSource replica = new HikariDataSource();
+        binder.bind("datasource.replica.hikari", Bindable.ofInstance(replica));
+        replica.setJdbcUrl(replicaUrl);
+        replica.setUsername(replicaUsername);
+        replica.setPassword(replicaPassword);
+        replica.setDriverClassName(properties.determineDriverClassName());
+        if (replica.getPoolName() == null && primary.getPoolName() != null) {
+            replica.setPoolName(primary.getPoolName() + "-replica");
+        }
+        pools.add(replica);
+
+        //health 확인용 커넥션은 풀 통계에 넣지 않는다
+        replicaHealth = new ReplicaHealth(replica, retryIntervalMillis, validationTimeoutSeconds);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                JdbcMetricsProxy.wrap(primary, connectionPoolRegistry.register("primary", primary)),
+                JdbcMetricsProxy.wrap(replica, connectionPoolRegistry.register("replica", replica)),
+                replicaHealth, readYourWrites);
+
+        //트랜잭션 시작 시점에는 readOnly 여부가 아직 동기화되지 않았으므로 첫 statement 때 커넥션을 얻는다
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        dataSource.setDefaultAutoCommit(primary.isAutoCommit());
+        return dataSource;
+    }
+
+    @Override
+    public void destroy() {
+        if (replicaHealth != null) {
+            replicaHealth.close();
+        }
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.monitor.QueryDeadlineInterceptor;
+import study.querydsl.monitor.SqlMetricsInterceptor;
+import study.querydsl.service.MemberTeamJsonWriter;
+
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final SqlMetricsInterceptor sqlMetricsInterceptor;
+    private final QueryDeadlineInterceptor queryDeadlineInterceptor;
+    private final MemberTeamJsonWriter memberTeamJsonWriter;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlMetricsInterceptor);
+        //요청 SqlExecutionContext가 먼저 만들어져 있어야 한다
+        registry.addInterceptor(queryDeadlineInterceptor)
+                .addPathPatterns("/v1/members", "/v2/members", "/v1/members/page");
+    }
+
+    //기본 Jackson 컨버터보다 먼저 확인하도록 맨 앞에 둔다
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new MemberTeamListHttpMessageConverter(memberTeamJsonWriter));
+    }
+}
@@ -2,17 +2,20 @@ package study.querydsl.controller;
 
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import study.querydsl.entity.Member;
-import study.querydsl.entity.Team;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dataset.SyntheticDataset;
+import study.querydsl.dataset.SyntheticDatasetLoader;
+import study.querydsl.dataset.SyntheticDatasetSpec;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
 
-@Profile("local")
+@Profile({"local", "loadtest"})
 @Component
 @RequiredArgsConstructor
 public class InitMember {
@@ -28,18 +31,26 @@ public class InitMember {
         @PersistenceContext
         private EntityManager em;
 
+        private final TransactionTemplate transactionTemplate;
+        private final SyntheticDatasetSpec spec;
+        private final int chunkSize;
+
+        InitMemberService(PlatformTransactionManager transactionManager,
+                          @Value("${init.member.count:100}") int memberCount,
+                          @Value("${init.member.teams:0}") int teamCount,
+                          @Value("${init.member.seed:42}") long seed,
+                          @Value("${init.member.chunk-size:1000}") int chunkSize) {
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.spec = new SyntheticDatasetSpec();
+            this.spec.setMembers(memberCount);
+            this.spec.setTeams(teamCount);
+            this.spec.setSeed(seed);
+            this.chunkSize = chunkSize;
+        }
 
-        @Transactional
+        //팀 크기, 나이, username이 치우친 데이터를 seed로 재현 가능하게 만든다 (SyntheticDataset)
         public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selecetedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selecetedTeam));
-            }
+            new SyntheticDatasetLoader(em, transactionTemplate, chunkSize).load(new SyntheticDataset(spec));
         }
     }
 }
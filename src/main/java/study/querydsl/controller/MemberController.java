@@ -1,13 +1,37 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberCursorSort;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.monitor.SqlExecutionContext;
 import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.service.MemberExportFormat;
+import study.querydsl.service.MemberExportService;
+import study.querydsl.service.MemberQueryExecutor;
+import study.querydsl.service.MemberSearchService;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 
 @RestController
@@ -15,6 +39,15 @@ import java.util.List;
 public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
+    private final MemberExportService memberExportService;
+    private final MemberQueryExecutor memberQueryExecutor;
+    private final MemberSearchService memberSearchService;
+
+    @Value("${member.query-executor.timeout-ms:10000}")
+    private long v2TimeoutMillis;
+
+    @Value("${member.export.timeout-ms:600000}")
+    private long exportTimeoutMillis;
 
 
     @GetMapping("/v1/members")
@@ -22,5 +55,116 @@ public class MemberController {
         return memberJpaRepository.search(condition);
     }
 
+    //쿼리는 MemberQueryExecutor에서 실행하고 서블릿 스레드는 바로 반환한다.
+    //요청 deadline(QueryDeadlineInterceptor)이나 timeout이 먼저 지나거나 클라이언트가 끊기면
+    //실행 중인 쿼리를 취소하고 503을 반환한다.
+    @GetMapping("/v2/members")
+    public DeferredResult<List<MemberTeamDto>> searchMemberV2(MemberSearchCondition condition) {
+        long timeoutMillis = Math.min(v2TimeoutMillis, SqlExecutionContext.remainingMillis().orElse(v2TimeoutMillis));
+        DeferredResult<List<MemberTeamDto>> result = new DeferredResult<>(timeoutMillis);
+        Runnable cancelQueries = SqlExecutionContext.cancellerForCurrentThread();
+        result.onTimeout(() -> {
+            cancelQueries.run();
+            result.setErrorResult(new QueryTimeoutException("member search deadline exceeded"));
+        });
+        result.onError(ex -> cancelQueries.run());
+
+        memberQueryExecutor.submit(() -> memberJpaRepository.search(condition), timeoutMillis)
+                .whenComplete((members, ex) -> {
+                    if (ex != null) {
+                        result.setErrorResult(ex instanceof CompletionException ? ex.getCause() : ex);
+                    } else {
+                        result.setResult(members);
+                    }
+                });
+        return result;
+    }
+
+    //쿼리 전용 스레드 풀과 대기 큐가 모두 찬 경우
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> queryExecutorSaturated(TaskRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("member query executor is saturated");
+    }
+
+    //요청 deadline 초과로 쿼리를 실행하지 않았거나 취소한 경우. 커넥션을 붙잡고 있지 않도록 바로 503
+    @ExceptionHandler({QueryTimeoutException.class, javax.persistence.QueryTimeoutException.class})
+    public ResponseEntity<String> queryDeadlineExceeded(Exception e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("member search deadline exceeded");
+    }
+
+    @GetMapping("/v1/members/page")
+    public Page<MemberTeamDto> searchMemberV1Page(MemberSearchCondition condition, Pageable pageable) {
+        //sort=age,desc 처럼 MemberTeamDto 필드 이름으로 정렬한다. 지원하지 않는 속성은 400
+        try {
+            MemberJpaRepository.pageOrder(pageable.getSort());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return memberSearchService.searchPage(condition, pageable);
+    }
+
+    //전체 결과를 List로 만들지 않고 DB 커서에서 바로 응답으로 스트리밍한다.
+    //StreamingResponseBody는 전역 async timeout을 쓰므로 WebAsyncTask로 export에만 긴 timeout을 둔다.
+    //timeout이 지나거나 클라이언트가 끊기면 실행 중인 쿼리를 취소해서 커넥션을 돌려준다.
+    @GetMapping("/v1/members/export")
+    public WebAsyncTask<Void> exportMembersV1(MemberSearchCondition condition,
+                                             @RequestParam(defaultValue = "NDJSON") MemberExportFormat format,
+                                             HttpServletResponse response) {
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"members." + format.getExtension() + "\"");
+
+        SqlExecutionContext exportContext = new SqlExecutionContext();
+        WebAsyncTask<Void> task = new WebAsyncTask<>(exportTimeoutMillis, () -> {
+            SqlExecutionContext.push(exportContext);
+            try {
+                memberExportService.export(condition, format, response.getOutputStream());
+                response.flushBuffer();
+                return null;
+            } finally {
+                SqlExecutionContext.pop(exportContext);
+            }
+        });
+        task.onCompletion(exportContext::cancel);
+        return task;
+    }
+
+    private static final int MAX_IDS = 1000;
+
+    //GET /v1/members/by-ids?ids=3,1,2 -> 입력 순서대로, 없는 id는 빠진다
+    @GetMapping("/v1/members/by-ids")
+    public List<MemberTeamDto> findMembersByIdsV1(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "too many ids: " + ids.size() + " (max " + MAX_IDS + ")");
+        }
+        return memberJpaRepository.findAllByIds(ids).stream()
+                .map(m -> new MemberTeamDto(m.getId(), m.getUsername(), m.getAge(),
+                        m.getTeam() == null ? null : m.getTeam().getId(),
+                        m.getTeam() == null ? null : m.getTeam().getName()))
+                .collect(Collectors.toList());
+    }
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    @GetMapping("/v1/members/cursor")
+    public MemberCursorPage searchMemberV1Cursor(MemberSearchCondition condition,
+                                                 @RequestParam(defaultValue = "ID") MemberCursorSort sort,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "20") int size) {
+        //잘못된 요청 값은 repository의 IllegalArgumentException(500)까지 내려보내지 않고 400으로 돌려준다
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive: " + size);
+        }
+        try {
+            MemberCursor.decode(cursor, sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return memberJpaRepository.searchByCursor(condition, sort, cursor, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
 
 }
@@ -0,0 +1,73 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.CacheStats;
+import study.querydsl.dto.DataSourceStats;
+import study.querydsl.dto.SqlMetricStats;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.DataSourceMonitor;
+import study.querydsl.monitor.SqlMetricsRegistry;
+import study.querydsl.repository.MemberSearchQueryCache;
+import study.querydsl.repository.MemberSearchResultCache;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final MemberSearchQueryCache memberSearchQueryCache;
+    private final MemberSearchResultCache memberSearchResultCache;
+    private final EntityManagerFactory emf;
+    private final SqlMetricsRegistry sqlMetricsRegistry;
+    private final DataSourceMonitor dataSourceMonitor;
+
+    @GetMapping("/stats/search-query-cache")
+    public CacheStats searchQueryCache() {
+        return memberSearchQueryCache.stats();
+    }
+
+    @GetMapping("/stats/search-result-cache")
+    public CacheStats searchResultCache() {
+        return memberSearchResultCache.stats();
+    }
+
+    //컨트롤러/repository 메서드별 SQL 수, DB 시간, row 수, hydrate 된 엔티티 수
+    @GetMapping("/stats/sql")
+    public List<SqlMetricStats> sql() {
+        return sqlMetricsRegistry.snapshot();
+    }
+
+    //커넥션 풀 상태, 획득 대기/점유 시간, SQL별 prepare 횟수, 풀 크기 제안
+    //reset=true 이면 측정 구간을 새로 시작한다
+    @GetMapping("/stats/datasource")
+    public DataSourceStats dataSource(@RequestParam(defaultValue = "false") boolean reset) {
+        return dataSourceMonitor.stats(reset);
+    }
+
+    //hibernate.generate_statistics: true 일 때만 값이 쌓인다
+    @GetMapping("/stats/second-level-cache")
+    public List<CacheStats> secondLevelCache() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        List<CacheStats> result = new ArrayList<>();
+        result.add(regionStats(statistics.getDomainDataRegionStatistics(Team.class.getName())));
+        result.add(regionStats(statistics.getDomainDataRegionStatistics(Member.class.getName())));
+        result.add(regionStats(statistics.getQueryRegionStatistics("default-query-results-region")));
+        return result;
+    }
+
+    private CacheStats regionStats(CacheRegionStatistics region) {
+        return new CacheStats(region.getRegionName(), region.getHitCount(), region.getMissCount(),
+                region.getElementCountInMemory());
+    }
+}
@@ -0,0 +1,115 @@
+package study.querydsl.dataset;
+
+import java.util.Random;
+
+//벤치마크, 실행 계획 테스트, 부하 테스트가 같이 쓰는 회원/팀 데이터.
+//균등하게 나눈 데이터로는 보이지 않는 문제(큰 팀 쏠림, 특정 나이대 몰림, 같은 username이 많은 경우,
+//팀이 없는 회원, 긴 username)가 드러나도록 분포를 치우치게 만든다.
+//
+//회원 i는 seed와 i만으로 정해지므로 chunk 단위로 나눠 만들거나 순서를 바꿔도 같은 데이터가 나온다.
+//teamRank 0이 가장 큰 팀이고 이름은 "team" + rank, username은 대부분 "member" + i 이다.
+public class SyntheticDataset {
+
+    //duplicateUsernameRatio 만큼 이 이름들이 Zipf 분포로 쓰인다 (kim이 가장 많다)
+    static final String[] COMMON_NAMES = {
+            "kim", "lee", "park", "choi", "jung", "kang", "cho", "yoon", "jang", "lim",
+            "han", "oh", "seo", "shin", "kwon", "hwang", "ahn", "song", "jeon", "hong"
+    };
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final SyntheticDatasetSpec spec;
+    private final ZipfDistribution teamSizes;
+    private final ZipfDistribution commonNames;
+
+    public SyntheticDataset(SyntheticDatasetSpec spec) {
+        this.spec = spec;
+        this.teamSizes = new ZipfDistribution(spec.getTeamCount(), spec.getTeamSizeExponent());
+        this.commonNames = new ZipfDistribution(COMMON_NAMES.length, 1.0);
+    }
+
+    public SyntheticDatasetSpec getSpec() {
+        return spec;
+    }
+
+    public int memberCount() {
+        return spec.getMembers();
+    }
+
+    public int teamCount() {
+        return teamSizes.size();
+    }
+
+    public static String teamName(int rank) {
+        return "team" + rank;
+    }
+
+    public SyntheticMember member(int index) {
+        Random random = random(index);
+        return new SyntheticMember(username(index, random), age(random), teamRank(random));
+    }
+
+    //아래 sample 메서드는 부하 테스트가 데이터와 같은 분포로 검색 조건을 만들 때 쓴다.
+    //큰 팀, 흔한 나이, 흔한 이름이 더 자주 검색된다.
+
+    public String sampleUsername(Random random) {
+        return member(random.nextInt(memberCount())).getUsername();
+    }
+
+    public String sampleTeamName(Random random) {
+        return teamName(teamSizes.sample(random));
+    }
+
+    public int sampleAge(Random random) {
+        return age(random);
+    }
+
+    //팀 크기의 기댓값. 실제 크기는 이 근처에서 흔들린다
+    public double expectedTeamSize(int rank) {
+        return memberCount() * (1 - spec.getNoTeamRatio()) * teamSizes.probability(rank);
+    }
+
+    private String username(int index, Random random) {
+        double p = random.nextDouble();
+        if (p < spec.getDuplicateUsernameRatio()) {
+            return COMMON_NAMES[commonNames.sample(random)];
+        }
+        if (p < spec.getDuplicateUsernameRatio() + spec.getLongUsernameRatio()) {
+            StringBuilder username = new StringBuilder(spec.getLongUsernameLength()).append("member").append(index).append('_');
+            while (username.length() < spec.getLongUsernameLength()) {
+                username.append((char) ('a' + random.nextInt(26)));
+            }
+            return username.toString();
+        }
+        return "member" + index;
+    }
+
+    //20대 후반에 크게 몰리고 40대에 한 번 더 몰린다. 나머지 10%는 0~99 전체에 퍼진다
+    private int age(Random random) {
+        double p = random.nextDouble();
+        long age;
+        if (p < 0.6) {
+            age = Math.round(28 + random.nextGaussian() * 5);
+        } else if (p < 0.9) {
+            age = Math.round(45 + random.nextGaussian() * 10);
+        } else {
+            age = random.nextInt(100);
+        }
+        return (int) Math.max(0, Math.min(99, age));
+    }
+
+    private int teamRank(Random random) {
+        if (random.nextDouble() < spec.getNoTeamRatio()) {
+            return SyntheticMember.NO_TEAM;
+        }
+        return teamSizes.sample(random);
+    }
+
+    //연속된 seed로 만든 java.util.Random은 첫 값끼리 상관관계가 있으므로 SplitMix64로 섞어서 쓴다
+    private Random random(int index) {
+        long z = spec.getSeed() + (index + 1L) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new Random(z ^ (z >>> 31));
+    }
+}
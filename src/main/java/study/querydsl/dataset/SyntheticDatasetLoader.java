@@ -0,0 +1,61 @@
+package study.querydsl.dataset;
+
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+//SyntheticDataset을 chunk 단위 트랜잭션으로 insert 한다.
+//chunk마다 flush/clear 하므로 회원 수가 수천만 건이어도 영속성 컨텍스트가 chunk 크기 이상 커지지 않는다.
+//이미 트랜잭션 안에서 부르면(테스트) 그 트랜잭션에 참여하고 flush/clear만 chunk 단위로 한다.
+public class SyntheticDatasetLoader {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public SyntheticDatasetLoader(EntityManager em, TransactionTemplate transactionTemplate, int chunkSize) {
+        this.em = em;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    //teamRank 순서의 team id를 반환한다
+    public Long[] load(SyntheticDataset dataset) {
+        Long[] teamIds = transactionTemplate.execute(status -> insertTeams(dataset));
+
+        for (int start = 0; start < dataset.memberCount(); start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, dataset.memberCount());
+            transactionTemplate.executeWithoutResult(status -> insertMembers(dataset, teamIds, from, to));
+        }
+        return teamIds;
+    }
+
+    private Long[] insertTeams(SyntheticDataset dataset) {
+        Long[] teamIds = new Long[dataset.teamCount()];
+        for (int rank = 0; rank < teamIds.length; rank++) {
+            Team team = new Team(SyntheticDataset.teamName(rank));
+            em.persist(team);
+            teamIds[rank] = team.getId();
+        }
+        em.flush();
+        em.clear();
+        return teamIds;
+    }
+
+    private void insertMembers(SyntheticDataset dataset, Long[] teamIds, int from, int to) {
+        for (int i = from; i < to; i++) {
+            SyntheticMember synthetic = dataset.member(i);
+            Member member = new Member(synthetic.getUsername(), synthetic.getAge());
+            //생성자의 연관관계 편의 메서드는 team.members 컬렉션을 초기화하므로 setTeam만 사용한다
+            if (synthetic.hasTeam()) {
+                member.setTeam(em.getReference(Team.class, teamIds[synthetic.getTeamRank()]));
+            }
+            em.persist(member);
+        }
+        em.flush();
+        em.clear();
+    }
+}
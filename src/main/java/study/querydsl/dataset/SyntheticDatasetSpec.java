@@ -0,0 +1,38 @@
+package study.querydsl.dataset;
+
+import lombok.Data;
+
+//SyntheticDataset이 만들 데이터의 크기와 치우침.
+//seed와 값이 같으면 언제 어디서 만들어도 같은 데이터가 나온다.
+@Data
+public class SyntheticDatasetSpec {
+
+    //scale 1 = 회원 1만 명
+    public static final int MEMBERS_PER_SCALE = 10_000;
+    //teams를 정하지 않으면 팀당 평균 회원 수가 이 값이 되도록 팀 수를 정한다
+    public static final int DEFAULT_MEMBERS_PER_TEAM = 50;
+
+    private long seed = 42;
+    private int members = MEMBERS_PER_SCALE;
+    //0이면 members / DEFAULT_MEMBERS_PER_TEAM
+    private int teams;
+    //팀 크기의 Zipf 지수. 클수록 상위 몇 개 팀에 회원이 몰린다
+    private double teamSizeExponent = 1.1;
+    //팀이 없는 회원 비율
+    private double noTeamRatio = 0.05;
+    //흔한 이름(kim, lee, ...)을 username으로 쓰는 비율. 같은 username이 수백~수천 건씩 생긴다
+    private double duplicateUsernameRatio = 0.1;
+    //username이 longUsernameLength 글자인 회원 비율
+    private double longUsernameRatio = 0.01;
+    private int longUsernameLength = 200;
+
+    public static SyntheticDatasetSpec scaled(double scale) {
+        SyntheticDatasetSpec spec = new SyntheticDatasetSpec();
+        spec.setMembers((int) Math.max(1, Math.round(MEMBERS_PER_SCALE * scale)));
+        return spec;
+    }
+
+    public int getTeamCount() {
+        return teams > 0 ? teams : Math.max(1, members / DEFAULT_MEMBERS_PER_TEAM);
+    }
+}
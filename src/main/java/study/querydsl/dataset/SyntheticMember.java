@@ -0,0 +1,26 @@
+package study.querydsl.dataset;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class SyntheticMember {
+
+    public static final int NO_TEAM = -1;
+
+    private final String username;
+    private final int age;
+    //SyntheticDataset.teamName(teamRank). 팀이 없으면 NO_TEAM
+    private final int teamRank;
+
+    SyntheticMember(String username, int age, int teamRank) {
+        this.username = username;
+        this.age = age;
+        this.teamRank = teamRank;
+    }
+
+    public boolean hasTeam() {
+        return teamRank != NO_TEAM;
+    }
+}
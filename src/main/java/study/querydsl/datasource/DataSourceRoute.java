@@ -0,0 +1,6 @@
+package study.querydsl.datasource;
+
+public enum DataSourceRoute {
+    PRIMARY,
+    REPLICA
+}
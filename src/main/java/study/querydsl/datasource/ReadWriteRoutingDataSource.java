@@ -0,0 +1,149 @@
+package study.querydsl.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.monitor.SqlExecutionContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+//readOnly 트랜잭션은 replica로, 나머지(쓰기 트랜잭션, 트랜잭션 밖)는 primary로 보낸다.
+//트랜잭션의 readOnly 여부는 커넥션을 실제로 얻는 시점에 알 수 있으므로 LazyConnectionDataSourceProxy로 감싸서 쓴다.
+//
+//replica 커넥션을 얻지 못하면 그 요청은 primary에서 읽고 ReplicaHealth에 알린다.
+//readYourWrites가 켜져 있으면 요청(SqlExecutionContext) 안에서 한 번 쓴 뒤에는 readOnly 트랜잭션도 primary에서 읽는다.
+//replica 복제 지연 때문에 방금 쓴 값이 안 보이는 일을 막는다.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaHealth replicaHealth;
+    private final boolean readYourWrites;
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    //현재 스레드가 replica 커넥션을 얻은 횟수. 읽은 결과가 replica에서 왔는지 확인하는 용도 (MemberSearchResultCache)
+    private static final ThreadLocal<long[]> REPLICA_READS = ThreadLocal.withInitial(() -> new long[1]);
+    //트랜잭션이 replica 커넥션에 묶였는지 표시하는 트랜잭션 리소스 key. 트랜잭션이 끝나면 풀린다
+    private static final Object REPLICA_TRANSACTION_KEY = new Object();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaHealth replicaHealth, boolean readYourWrites) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaHealth = replicaHealth;
+        this.readYourWrites = readYourWrites;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(DataSourceRoute.PRIMARY, primary);
+        targets.put(DataSourceRoute.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        //bean이 아니므로 직접 초기화한다
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return route();
+    }
+
+    public DataSourceRoute route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return DataSourceRoute.PRIMARY;
+        }
+        return readOnlyRoute();
+    }
+
+    //지금 readOnly 트랜잭션을 시작하면 가게 될 곳
+    public DataSourceRoute readOnlyRoute() {
+        if (readYourWrites && SqlExecutionContext.hasWritten()) {
+            return DataSourceRoute.PRIMARY;
+        }
+        return replicaHealth.isAvailable() ? DataSourceRoute.REPLICA : DataSourceRoute.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (route() == DataSourceRoute.REPLICA) {
+            try {
+                Connection connection = replica.getConnection();
+                replicaConnections.increment();
+                REPLICA_READS.get()[0]++;
+                bindReplicaToTransaction();
+                return connection;
+            } catch (SQLException e) {
+                replicaHealth.markDown();
+                fallbacks.increment();
+            }
+        }
+        return primaryConnection();
+    }
+
+    //계정은 primary/replica 풀 설정을 따른다
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    private Connection primaryConnection() throws SQLException {
+        Connection connection = primary.getConnection();
+        primaryConnections.increment();
+        //쓰기 트랜잭션이 커넥션을 잡았으면 이후 읽기는 primary에 고정한다
+        if (readYourWrites && TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            SqlExecutionContext.markWritten();
+        }
+        return connection;
+    }
+
+    public static long replicaReadsOnCurrentThread() {
+        return REPLICA_READS.get()[0];
+    }
+
+    //현재 트랜잭션이 replica 커넥션으로 읽고 있는지. 바깥 readOnly 트랜잭션이 이미 얻은 커넥션을
+    //다시 쓰는 경우에는 replicaReadsOnCurrentThread()가 바뀌지 않으므로 이것으로 확인한다
+    public static boolean isCurrentTransactionOnReplica() {
+        return TransactionSynchronizationManager.hasResource(REPLICA_TRANSACTION_KEY);
+    }
+
+    private static void bindReplicaToTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(REPLICA_TRANSACTION_KEY)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(REPLICA_TRANSACTION_KEY, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(REPLICA_TRANSACTION_KEY);
+            }
+        });
+    }
+
+    //풀 상태를 보기 위한 용도. 커넥션은 getConnection()으로 얻는다
+    public DataSource target(DataSourceRoute route) {
+        return route == DataSourceRoute.REPLICA ? replica : primary;
+    }
+
+    public long getPrimaryConnections() {
+        return primaryConnections.sum();
+    }
+
+    public long getReplicaConnections() {
+        return replicaConnections.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    public ReplicaHealth getReplicaHealth() {
+        return replicaHealth;
+    }
+}
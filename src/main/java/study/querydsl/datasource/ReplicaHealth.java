@@ -0,0 +1,72 @@
+package study.querydsl.datasource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+//replica 커넥션을 얻지 못하면 읽기를 primary로 보내고, 백그라운드 스레드에서 retryInterval마다
+//Connection.isValid로 replica를 확인해서 살아나면 다시 replica로 보낸다.
+//요청 스레드는 상태만 읽으므로 replica가 응답하지 않아도 확인을 기다리지 않는다.
+public class ReplicaHealth implements AutoCloseable {
+
+    private final DataSource replica;
+    private final long retryIntervalMillis;
+    private final int validationTimeoutSeconds;
+    private final ScheduledThreadPoolExecutor prober;
+    private volatile boolean down;
+    //this로 동기화한다
+    private boolean probeScheduled;
+
+    public ReplicaHealth(DataSource replica, long retryIntervalMillis, int validationTimeoutSeconds) {
+        this.replica = replica;
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.prober = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("replica-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isAvailable() {
+        return !down;
+    }
+
+    public synchronized void markDown() {
+        down = true;
+        if (!probeScheduled) {
+            probeScheduled = true;
+            prober.schedule(this::probe, retryIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    //prober 스레드에서만 실행된다. 확인에 실패하면 retryInterval 뒤에 다시 확인한다
+    private void probe() {
+        boolean valid;
+        try (Connection connection = replica.getConnection()) {
+            valid = connection.isValid(validationTimeoutSeconds);
+        } catch (Exception e) {
+            valid = false;
+        }
+        synchronized (this) {
+            if (valid) {
+                down = false;
+                probeScheduled = false;
+            } else if (!prober.isShutdown()) {
+                prober.schedule(this::probe, retryIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public boolean isDown() {
+        return down;
+    }
+
+    @Override
+    public void close() {
+        prober.shutdownNow();
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class CacheStats {
+
+    private String name;
+    private long hits;
+    private long misses;
+    private long size;
+
+    public CacheStats(String name, long hits, long misses, long size) {
+        this.name = name;
+        this.hits = hits;
+        this.misses = misses;
+        this.size = size;
+    }
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+//커넥션 풀 하나의 상태와 측정 구간 값. replica를 켜면 primary/replica 각각 하나씩이다
+@Data
+public class ConnectionPoolStats {
+
+    //ConnectionPoolRegistry에 등록한 이름 (primary, replica, dataSource bean 이름)
+    private String name;
+
+    //HikariPoolMXBean 현재 값
+    private String poolName;
+    private int maxPoolSize;
+    private int activeConnections;
+    private int idleConnections;
+    private int totalConnections;
+    private int pendingThreads;
+
+    //측정 구간(마지막 reset 이후) 값
+    private double windowSeconds;
+    private long acquires;
+    private double acquiresPerSecond;
+    private double avgAcquireMillis;
+    private double avgHoldMillis;
+    private int peakActiveConnections;
+    //bucket 상한(ms) -> 건수
+    private Map<String, Long> acquireWaitHistogram;
+    private Map<String, Long> holdTimeHistogram;
+
+    //같은 SQL을 다시 prepare 한 비율. driver statement cache(크기 제한 없음)를 켰을 때의 적중률 상한이다
+    private CacheStats statementCache;
+    private List<SqlPrepareStats> topStatements;
+
+    private PoolSizeAdvice advice;
+}
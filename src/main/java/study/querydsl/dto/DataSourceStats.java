@@ -0,0 +1,13 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DataSourceStats {
+
+    private List<ConnectionPoolStats> pools;
+
+    private CacheStats queryPlanCache;
+}
@@ -0,0 +1,53 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+//클라이언트에게는 불투명한 문자열로만 전달되는 커서
+//마지막으로 내려간 row의 정렬 키를 담아서 다음 페이지를 OFFSET 없이 seek 한다.
+@Getter
+public class MemberCursor {
+
+    private final MemberCursorSort sort;
+    private final Integer age;
+    private final Long memberId;
+
+    private MemberCursor(MemberCursorSort sort, Integer age, Long memberId) {
+        this.sort = sort;
+        this.age = age;
+        this.memberId = memberId;
+    }
+
+    public static MemberCursor after(MemberTeamDto last, MemberCursorSort sort) {
+        return new MemberCursor(sort, sort == MemberCursorSort.AGE ? last.getAge() : null, last.getMemberId());
+    }
+
+    public String encode() {
+        String raw = sort == MemberCursorSort.AGE
+                ? "A:" + age + ":" + memberId
+                : "I:" + memberId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //cursor가 없으면 첫 페이지이므로 null을 반환한다.
+    public static MemberCursor decode(String cursor, MemberCursorSort sort) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (sort == MemberCursorSort.AGE && parts.length == 3 && parts[0].equals("A")) {
+                return new MemberCursor(sort, Integer.valueOf(parts[1]), Long.valueOf(parts[2]));
+            }
+            if (sort == MemberCursorSort.ID && parts.length == 2 && parts[0].equals("I")) {
+                return new MemberCursor(sort, null, Long.valueOf(parts[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            //Base64, 숫자 형식 오류 모두 아래에서 처리
+        }
+        throw new IllegalArgumentException("invalid cursor for sort " + sort + ": " + cursor);
+    }
+}
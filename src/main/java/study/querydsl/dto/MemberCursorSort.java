@@ -0,0 +1,9 @@
+package study.querydsl.dto;
+
+//커서 페이징 정렬 기준
+// ID  : member.id 오름차순
+// AGE : (member.age, member.id) 오름차순
+public enum MemberCursorSort {
+    ID,
+    AGE
+}
@@ -7,6 +7,10 @@ public class MemberSearchCondition {
 
     //회원명, 팀명, 나이(ageGoe, ageLoe)
     private String username;
+    //username like 'x%' (typeahead)
+    private String usernameStartsWith;
+    //username like '%x%'
+    private String usernameContains;
 
     private String teamName;
     private Integer ageGoe;
@@ -0,0 +1,26 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class PoolSizeAdvice {
+
+    private int currentMaxPoolSize;
+    //평균 점유 커넥션 수 = 초당 획득 수 x 평균 점유 시간 (Little's law)
+    private double averageInUse;
+    //대기까지 포함한 평균 커넥션 수요 = 초당 획득 수 x (평균 대기 + 평균 점유 시간)
+    private double averageDemand;
+    private int peakInUse;
+    private int recommendedPoolSize;
+    private String reason;
+
+    public PoolSizeAdvice(int currentMaxPoolSize, double averageInUse, double averageDemand, int peakInUse,
+                          int recommendedPoolSize, String reason) {
+        this.currentMaxPoolSize = currentMaxPoolSize;
+        this.averageInUse = averageInUse;
+        this.averageDemand = averageDemand;
+        this.peakInUse = peakInUse;
+        this.recommendedPoolSize = recommendedPoolSize;
+        this.reason = reason;
+    }
+}
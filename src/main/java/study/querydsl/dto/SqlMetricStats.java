@@ -0,0 +1,32 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class SqlMetricStats {
+
+    private String tag;
+    private long calls;
+    private long statements;
+    private long dbTimeMillis;
+    private long rows;
+    private long entities;
+
+    //bucket 상한(ms) -> 건수
+    private Map<String, Long> latencyHistogram;
+    private Map<String, Long> dbTimeHistogram;
+
+    public SqlMetricStats(String tag, long calls, long statements, long dbTimeMillis, long rows, long entities,
+                          Map<String, Long> latencyHistogram, Map<String, Long> dbTimeHistogram) {
+        this.tag = tag;
+        this.calls = calls;
+        this.statements = statements;
+        this.dbTimeMillis = dbTimeMillis;
+        this.rows = rows;
+        this.entities = entities;
+        this.latencyHistogram = latencyHistogram;
+        this.dbTimeHistogram = dbTimeHistogram;
+    }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class SqlPrepareStats {
+
+    private String sql;
+    private long prepares;
+
+    public SqlPrepareStats(String sql, long prepares) {
+        this.sql = sql;
+        this.prepares = prepares;
+    }
+}
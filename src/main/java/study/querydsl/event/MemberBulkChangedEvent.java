@@ -0,0 +1,42 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//벌크 update/delete는 엔티티 이벤트가 발생하지 않으므로 별도로 알린다.
+//어떤 회원이 바뀌었는지 알 수 없으므로 구독자는 전체를 다시 맞춰야 한다.
+//어떤 컬럼이 바뀌었는지는 operation으로 알 수 있다.
+@Getter
+@ToString
+public class MemberBulkChangedEvent {
+
+    public enum Operation {
+        AGE_PLUS(false, true),
+        CHANGE_TEAM(false, false),
+        DELETE(true, true);
+
+        private final boolean usernameChanged;
+        private final boolean ageChanged;
+
+        Operation(boolean usernameChanged, boolean ageChanged) {
+            this.usernameChanged = usernameChanged;
+            this.ageChanged = ageChanged;
+        }
+
+        public boolean changesUsername() {
+            return usernameChanged;
+        }
+
+        public boolean changesAge() {
+            return ageChanged;
+        }
+    }
+
+    private final Operation operation;
+    private final long affectedRows;
+
+    public MemberBulkChangedEvent(Operation operation, long affectedRows) {
+        this.operation = operation;
+        this.affectedRows = affectedRows;
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//엔티티 단위 Member insert/update/delete. 트랜잭션 커밋 후에 처리된다.
+//INSERT는 before가, DELETE는 after가 null이다.
+//UPDATE인데 before가 null이면 이전 값을 알 수 없는 경우(detached merge 등)이므로 구독자는 전체를 다시 맞춰야 한다.
+@Getter
+@ToString
+public class MemberChangedEvent {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final Type type;
+    private final Long memberId;
+    private final MemberState before;
+    private final MemberState after;
+
+    public MemberChangedEvent(Type type, Long memberId, MemberState before, MemberState after) {
+        this.type = type;
+        this.memberId = memberId;
+        this.before = before;
+        this.after = after;
+    }
+
+    public boolean isBeforeUnknown() {
+        return type == Type.UPDATE && before == null;
+    }
+}
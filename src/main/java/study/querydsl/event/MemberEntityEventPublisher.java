@@ -0,0 +1,94 @@
+package study.querydsl.event;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+//Hibernate의 Member insert/update/delete 이벤트를 스프링 MemberChangedEvent로 발행한다.
+//구독자는 @TransactionalEventListener로 받아서 커밋된 변경만 반영한다.
+@Component
+public class MemberEntityEventPublisher implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final ApplicationEventPublisher publisher;
+
+    public MemberEntityEventPublisher(EntityManagerFactory emf, ApplicationEventPublisher publisher) {
+        this.emf = emf;
+        this.publisher = publisher;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            publisher.publishEvent(new MemberChangedEvent(MemberChangedEvent.Type.INSERT, (Long) event.getId(),
+                    null, state(event.getPersister(), event.getState())));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            publisher.publishEvent(new MemberChangedEvent(MemberChangedEvent.Type.UPDATE, (Long) event.getId(),
+                    state(event.getPersister(), event.getOldState()), state(event.getPersister(), event.getState())));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            publisher.publishEvent(new MemberChangedEvent(MemberChangedEvent.Type.DELETE, (Long) event.getId(),
+                    state(event.getPersister(), event.getDeletedState()), null));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private MemberState state(EntityPersister persister, Object[] values) {
+        if (values == null) {
+            return null;
+        }
+        Object team = values[persister.getEntityMetamodel().getPropertyIndex("team")];
+        Object age = values[persister.getEntityMetamodel().getPropertyIndex("age")];
+        Object username = values[persister.getEntityMetamodel().getPropertyIndex("username")];
+        return new MemberState(teamId(team), age == null ? 0 : (Integer) age, (String) username);
+    }
+
+    //team 프록시를 초기화하지 않고 id만 꺼낸다
+    private Long teamId(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+}
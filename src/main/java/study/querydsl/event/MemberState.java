@@ -0,0 +1,20 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//변경 이벤트에 담기는 회원의 특정 시점 값
+@Getter
+@ToString
+public class MemberState {
+
+    private final Long teamId;
+    private final int age;
+    private final String username;
+
+    public MemberState(Long teamId, int age, String username) {
+        this.teamId = teamId;
+        this.age = age;
+        this.username = username;
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//엔티티 단위 Team insert/update/delete. 트랜잭션 커밋 후에 처리된다.
+//DELETE는 name이 null이다.
+@Getter
+@ToString
+public class TeamChangedEvent {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final Type type;
+    private final Long teamId;
+    private final String name;
+
+    public TeamChangedEvent(Type type, Long teamId, String name) {
+        this.type = type;
+        this.teamId = teamId;
+        this.name = name;
+    }
+}
@@ -0,0 +1,74 @@
+package study.querydsl.event;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+//Hibernate의 Team insert/update/delete 이벤트를 스프링 TeamChangedEvent로 발행한다.
+//MemberEntityEventPublisher와 같은 방식이다.
+@Component
+public class TeamEntityEventPublisher implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final ApplicationEventPublisher publisher;
+
+    public TeamEntityEventPublisher(EntityManagerFactory emf, ApplicationEventPublisher publisher) {
+        this.emf = emf;
+        this.publisher = publisher;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team) {
+            publisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.INSERT, (Long) event.getId(),
+                    name(event.getPersister(), event.getState())));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Team) {
+            publisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.UPDATE, (Long) event.getId(),
+                    name(event.getPersister(), event.getState())));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team) {
+            publisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.DELETE, (Long) event.getId(), null));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private String name(EntityPersister persister, Object[] values) {
+        return (String) values[persister.getEntityMetamodel().getPropertyIndex("name")];
+    }
+}
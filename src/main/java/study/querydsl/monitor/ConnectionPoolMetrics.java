@@ -0,0 +1,120 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+//커넥션 획득 대기 시간, 점유(checkout -> close) 시간, 동시 점유 수, SQL별 prepareStatement 횟수.
+//JdbcMetricsProxy가 기록한다. reset() 이후 구간의 값이다. 풀마다 하나씩 둔다 (ConnectionPoolRegistry).
+public class ConnectionPoolMetrics {
+
+    //SQL 문자열 종류가 이보다 많으면 나머지는 OTHER_SQL로 합친다 (IN 절 크기마다 SQL이 달라지는 경우 등)
+    static final int MAX_DISTINCT_SQL = 500;
+    static final String OTHER_SQL = "(other)";
+
+    private volatile Window window = new Window();
+
+    void recordAcquire(long nanos) {
+        Window current = window;
+        current.acquires.increment();
+        current.acquireNanos.add(nanos);
+        current.acquireWait.record(nanos);
+        int active = current.active.incrementAndGet();
+        current.peakActive.accumulateAndGet(active, Math::max);
+    }
+
+    void recordRelease(long holdNanos) {
+        Window current = window;
+        current.active.decrementAndGet();
+        current.holdNanos.add(holdNanos);
+        current.holdTime.record(holdNanos);
+    }
+
+    void recordPrepare(String sql) {
+        Map<String, LongAdder> prepares = window.prepares;
+        LongAdder count = prepares.get(sql);
+        if (count == null) {
+            count = prepares.size() < MAX_DISTINCT_SQL
+                    ? prepares.computeIfAbsent(sql, s -> new LongAdder())
+                    : prepares.computeIfAbsent(OTHER_SQL, s -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    //지금까지 값을 돌려주고 새 구간을 시작한다. 점유 중인 커넥션 수는 이어받는다
+    public Snapshot reset() {
+        Window previous = window;
+        Window next = new Window();
+        next.active.set(Math.max(0, previous.active.get()));
+        next.peakActive.set(next.active.get());
+        window = next;
+        return previous.snapshot();
+    }
+
+    public Snapshot snapshot() {
+        return window.snapshot();
+    }
+
+    @Getter
+    public static class Snapshot {
+        private final long elapsedNanos;
+        private final long acquires;
+        private final long acquireNanos;
+        private final long holdNanos;
+        private final int active;
+        private final int peakActive;
+        private final Map<String, Long> acquireWaitHistogram;
+        private final Map<String, Long> holdTimeHistogram;
+        private final List<SqlPrepareCount> prepares;
+
+        Snapshot(long elapsedNanos, long acquires, long acquireNanos, long holdNanos, int active, int peakActive,
+                 Map<String, Long> acquireWaitHistogram, Map<String, Long> holdTimeHistogram,
+                 List<SqlPrepareCount> prepares) {
+            this.elapsedNanos = elapsedNanos;
+            this.acquires = acquires;
+            this.acquireNanos = acquireNanos;
+            this.holdNanos = holdNanos;
+            this.active = active;
+            this.peakActive = peakActive;
+            this.acquireWaitHistogram = acquireWaitHistogram;
+            this.holdTimeHistogram = holdTimeHistogram;
+            this.prepares = prepares;
+        }
+    }
+
+    @Getter
+    public static class SqlPrepareCount {
+        private final String sql;
+        private final long count;
+
+        SqlPrepareCount(String sql, long count) {
+            this.sql = sql;
+            this.count = count;
+        }
+    }
+
+    private static class Window {
+        private final long startNanos = System.nanoTime();
+        private final LongAdder acquires = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAdder holdNanos = new LongAdder();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger peakActive = new AtomicInteger();
+        private final LatencyHistogram acquireWait = new LatencyHistogram();
+        private final LatencyHistogram holdTime = new LatencyHistogram();
+        private final Map<String, LongAdder> prepares = new ConcurrentHashMap<>();
+
+        Snapshot snapshot() {
+            List<SqlPrepareCount> prepareCounts = new ArrayList<>();
+            prepares.forEach((sql, count) -> prepareCounts.add(new SqlPrepareCount(sql, count.sum())));
+            prepareCounts.sort((a, b) -> Long.compare(b.count, a.count));
+            return new Snapshot(System.nanoTime() - startNanos, acquires.sum(), acquireNanos.sum(), holdNanos.sum(),
+                    active.get(), peakActive.get(), acquireWait.snapshot(), holdTime.snapshot(), prepareCounts);
+        }
+    }
+}
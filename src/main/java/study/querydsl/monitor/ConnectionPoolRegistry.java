@@ -0,0 +1,58 @@
+package study.querydsl.monitor;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//커넥션 풀마다 ConnectionPoolMetrics를 따로 둔다. 풀을 JdbcMetricsProxy로 감쌀 때 등록한다.
+//replica를 켜면 primary/replica가 각각 등록되어 풀 상태와 크기 제안도 풀별로 나온다.
+@Component
+public class ConnectionPoolRegistry {
+
+    private final List<Pool> pools = new CopyOnWriteArrayList<>();
+
+    public ConnectionPoolMetrics register(String name, DataSource dataSource) {
+        Pool pool = new Pool(name, dataSource, new ConnectionPoolMetrics());
+        pools.add(pool);
+        return pool.metrics;
+    }
+
+    public List<Pool> pools() {
+        return new ArrayList<>(pools);
+    }
+
+    @Getter
+    public static class Pool {
+        private final String name;
+        private final DataSource dataSource;
+        private final ConnectionPoolMetrics metrics;
+
+        Pool(String name, DataSource dataSource, ConnectionPoolMetrics metrics) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.metrics = metrics;
+        }
+
+        //Hikari가 아니면 null. 풀 상태는 비워둔다
+        public HikariDataSource hikari() {
+            return unwrapHikari(dataSource);
+        }
+    }
+
+    public static HikariDataSource unwrapHikari(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            //Hikari가 아니면 풀 상태는 비워둔다
+        }
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+package study.querydsl.monitor;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.CacheStats;
+import study.querydsl.dto.ConnectionPoolStats;
+import study.querydsl.dto.DataSourceStats;
+import study.querydsl.dto.SqlPrepareStats;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+//풀별 Hikari 상태 + ConnectionPoolMetrics 측정 구간 값 + Hibernate query plan cache를 모아서 보여준다
+@Component
+public class DataSourceMonitor {
+
+    private static final int TOP_STATEMENTS = 20;
+
+    private final ConnectionPoolRegistry connectionPoolRegistry;
+    private final EntityManagerFactory emf;
+
+    public DataSourceMonitor(ConnectionPoolRegistry connectionPoolRegistry, EntityManagerFactory emf) {
+        this.connectionPoolRegistry = connectionPoolRegistry;
+        this.emf = emf;
+    }
+
+    //reset이면 지금까지의 구간 값을 돌려주고 새 구간을 시작한다 (부하 테스트 구간만 따로 보기 위함)
+    public DataSourceStats stats(boolean reset) {
+        DataSourceStats stats = new DataSourceStats();
+        List<ConnectionPoolStats> pools = new ArrayList<>();
+        for (ConnectionPoolRegistry.Pool pool : connectionPoolRegistry.pools()) {
+            pools.add(poolStats(pool, reset));
+        }
+        stats.setPools(pools);
+
+        //hibernate.generate_statistics: true 일 때만 값이 쌓인다
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.setQueryPlanCache(new CacheStats("hibernateQueryPlanCache",
+                statistics.getQueryPlanCacheHitCount(), statistics.getQueryPlanCacheMissCount(),
+                statistics.getQueries().length));
+        return stats;
+    }
+
+    private ConnectionPoolStats poolStats(ConnectionPoolRegistry.Pool pool, boolean reset) {
+        ConnectionPoolMetrics.Snapshot window = reset ? pool.getMetrics().reset() : pool.getMetrics().snapshot();
+        ConnectionPoolStats stats = new ConnectionPoolStats();
+        stats.setName(pool.getName());
+
+        HikariDataSource hikari = pool.hikari();
+        int maxPoolSize = 0;
+        int pending = 0;
+        if (hikari != null) {
+            maxPoolSize = hikari.getMaximumPoolSize();
+            stats.setPoolName(hikari.getPoolName());
+            stats.setMaxPoolSize(maxPoolSize);
+            HikariPoolMXBean hikariPool = hikari.getHikariPoolMXBean();
+            if (hikariPool != null) {
+                pending = hikariPool.getThreadsAwaitingConnection();
+                stats.setActiveConnections(hikariPool.getActiveConnections());
+                stats.setIdleConnections(hikariPool.getIdleConnections());
+                stats.setTotalConnections(hikariPool.getTotalConnections());
+                stats.setPendingThreads(pending);
+            }
+        }
+
+        double seconds = window.getElapsedNanos() / 1_000_000_000.0;
+        long acquires = window.getAcquires();
+        stats.setWindowSeconds(seconds);
+        stats.setAcquires(acquires);
+        stats.setAcquiresPerSecond(seconds > 0 ? acquires / seconds : 0);
+        stats.setAvgAcquireMillis(acquires > 0 ? window.getAcquireNanos() / 1_000_000.0 / acquires : 0);
+        stats.setAvgHoldMillis(acquires > 0 ? window.getHoldNanos() / 1_000_000.0 / acquires : 0);
+        stats.setPeakActiveConnections(window.getPeakActive());
+        stats.setAcquireWaitHistogram(window.getAcquireWaitHistogram());
+        stats.setHoldTimeHistogram(window.getHoldTimeHistogram());
+
+        long prepares = 0;
+        List<SqlPrepareStats> top = new ArrayList<>();
+        for (ConnectionPoolMetrics.SqlPrepareCount count : window.getPrepares()) {
+            prepares += count.getCount();
+            if (top.size() < TOP_STATEMENTS) {
+                top.add(new SqlPrepareStats(count.getSql(), count.getCount()));
+            }
+        }
+        int distinct = window.getPrepares().size();
+        stats.setStatementCache(new CacheStats("preparedStatements", prepares - distinct, distinct, distinct));
+        stats.setTopStatements(top);
+
+        stats.setAdvice(PoolSizeAdvisor.advise(window, maxPoolSize, pending));
+        return stats;
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.monitor;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+//엔티티가 hydrate 될 때마다 현재 SqlExecutionContext에 기록한다 (2차 캐시에서 읽은 엔티티 포함)
+@Component
+public class EntityLoadMetricsListener implements PostLoadEventListener {
+
+    private final EntityManagerFactory emf;
+
+    public EntityLoadMetricsListener(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @PostConstruct
+    public void register() {
+        emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, this);
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        SqlExecutionContext.recordEntity();
+    }
+}
@@ -0,0 +1,144 @@
+package study.querydsl.monitor;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+//DataSource -> Connection -> Statement -> ResultSet 을 JDK 동적 프록시로 감싸서
+//statement 실행 횟수/시간과 읽은 row 수를 현재 스레드의 SqlExecutionContext에 기록한다.
+//ConnectionPoolMetrics가 주어지면 커넥션 획득 대기/점유 시간과 SQL별 prepare 횟수도 기록한다.
+public class JdbcMetricsProxy implements InvocationHandler {
+
+    private final Object target;
+    private final ConnectionPoolMetrics poolMetrics;
+    //Connection 프록시에서만 쓴다
+    private final long openedNanos;
+    private boolean closed;
+
+    private JdbcMetricsProxy(Object target, ConnectionPoolMetrics poolMetrics) {
+        this.target = target;
+        this.poolMetrics = poolMetrics;
+        this.openedNanos = System.nanoTime();
+    }
+
+    public static DataSource wrap(DataSource dataSource) {
+        return wrap(dataSource, null);
+    }
+
+    public static DataSource wrap(DataSource dataSource, ConnectionPoolMetrics poolMetrics) {
+        if (Proxy.isProxyClass(dataSource.getClass())
+                && Proxy.getInvocationHandler(dataSource) instanceof JdbcMetricsProxy) {
+            return dataSource;
+        }
+        //HikariDataSource의 close()가 컨테이너 종료 시 호출되도록 Closeable도 노출한다
+        Class<?>[] interfaces = dataSource instanceof Closeable
+                ? new Class<?>[]{DataSource.class, Closeable.class}
+                : new Class<?>[]{DataSource.class};
+        return (DataSource) Proxy.newProxyInstance(JdbcMetricsProxy.class.getClassLoader(), interfaces,
+                new JdbcMetricsProxy(dataSource, poolMetrics));
+    }
+
+    private Object proxy(Object target, Class<?>... interfaces) {
+        return Proxy.newProxyInstance(JdbcMetricsProxy.class.getClassLoader(), interfaces,
+                new JdbcMetricsProxy(target, poolMetrics));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.equals("close") && method.getDeclaringClass() == Closeable.class) {
+            if (target instanceof AutoCloseable) {
+                ((AutoCloseable) target).close();
+            }
+            return null;
+        }
+        if (poolMetrics != null && target instanceof DataSource && name.equals("getConnection")) {
+            return getConnection(method, args);
+        }
+        if (poolMetrics != null && target instanceof Connection) {
+            if (name.equals("close")) {
+                return closeConnection(method, args);
+            }
+            if ((name.equals("prepareStatement") || name.equals("prepareCall")) && args != null && args[0] instanceof String) {
+                poolMetrics.recordPrepare((String) args[0]);
+            }
+        }
+        if (target instanceof Statement && name.startsWith("execute")) {
+            return execute(method, args);
+        }
+        if (target instanceof ResultSet && name.equals("next")) {
+            Object hasNext = call(method, args);
+            if (Boolean.TRUE.equals(hasNext)) {
+                SqlExecutionContext.recordRow();
+            }
+            return hasNext;
+        }
+
+        Object result = call(method, args);
+        Class<?> returnType = method.getReturnType();
+        if (result instanceof Connection && returnType == Connection.class && !name.equals("unwrap")) {
+            //Statement.getConnection() 등으로 다시 얻은 커넥션은 획득/반환으로 세지 않는다
+            return target instanceof DataSource
+                    ? proxy(result, Connection.class)
+                    : Proxy.newProxyInstance(JdbcMetricsProxy.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    new JdbcMetricsProxy(result, null));
+        }
+        if (result instanceof Statement && Statement.class.isAssignableFrom(returnType)) {
+            return proxy(result, returnType);
+        }
+        if (result instanceof ResultSet && returnType == ResultSet.class) {
+            return proxy(result, ResultSet.class);
+        }
+        return result;
+    }
+
+    //풀이 비어 있으면 getConnection()에서 기다리므로 이 시간이 곧 획득 대기 시간이다
+    private Object getConnection(Method method, Object[] args) throws Throwable {
+        long start = System.nanoTime();
+        Object connection = call(method, args);
+        poolMetrics.recordAcquire(System.nanoTime() - start);
+        return proxy(connection, Connection.class);
+    }
+
+    //close()가 여러 번 호출되어도 한 번만 기록한다
+    private Object closeConnection(Method method, Object[] args) throws Throwable {
+        try {
+            return call(method, args);
+        } finally {
+            if (!closed) {
+                closed = true;
+                poolMetrics.recordRelease(System.nanoTime() - openedNanos);
+            }
+        }
+    }
+
+    private Object execute(Method method, Object[] args) throws Throwable {
+        Statement statement = (Statement) target;
+        SqlExecutionContext.beginStatement(statement);
+        long start = System.nanoTime();
+        try {
+            Object result = call(method, args);
+            if (result instanceof ResultSet) {
+                return proxy(result, ResultSet.class);
+            }
+            return result;
+        } finally {
+            SqlExecutionContext.recordStatement(System.nanoTime() - start);
+            SqlExecutionContext.endStatement(statement);
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package study.querydsl.monitor;
+
+import study.querydsl.dto.PoolSizeAdvice;
+
+//관측한 커넥션 수요로 풀 크기를 제안한다.
+//수요 L = (전체 대기 시간 + 전체 점유 시간) / 측정 구간 = λ x (W_acquire + W_hold)
+//평균만 맞추면 순간적인 몰림에서 다시 대기가 생기므로 HEADROOM 만큼 여유를 두고,
+//관측한 최대 동시 점유 수보다 작게는 제안하지 않는다.
+//풀이 부족하지 않은데 제안값이 현재보다 작으면 줄여도 된다는 뜻이다. (커넥션이 많을수록 DB의 context switch가 늘어난다)
+public class PoolSizeAdvisor {
+
+    static final double HEADROOM = 1.5;
+    static final int MIN_POOL_SIZE = 2;
+
+    private PoolSizeAdvisor() {
+    }
+
+    public static PoolSizeAdvice advise(ConnectionPoolMetrics.Snapshot window, int maxPoolSize, int pendingThreads) {
+        if (window.getAcquires() == 0 || window.getElapsedNanos() <= 0) {
+            return new PoolSizeAdvice(maxPoolSize, 0, 0, window.getPeakActive(), maxPoolSize,
+                    "no connection was acquired in this window");
+        }
+        double elapsed = window.getElapsedNanos();
+        double averageInUse = window.getHoldNanos() / elapsed;
+        double averageDemand = (window.getHoldNanos() + window.getAcquireNanos()) / elapsed;
+        double avgAcquireMillis = window.getAcquireNanos() / 1_000_000.0 / window.getAcquires();
+
+        int recommended = Math.max(MIN_POOL_SIZE, (int) Math.ceil(averageDemand * HEADROOM));
+        recommended = Math.max(recommended, window.getPeakActive());
+
+        boolean starved = pendingThreads > 0
+                || (window.getPeakActive() >= maxPoolSize && avgAcquireMillis >= 1.0);
+        if (starved) {
+            //풀이 꽉 차 있으면 관측한 점유 수 자체가 풀 크기에 묶여 있으므로 최소한 한 단계는 늘린다
+            recommended = Math.max(recommended, maxPoolSize + Math.max(1, maxPoolSize / 4));
+        }
+
+        String reason = String.format("demand %.2f (in use %.2f + waiting %.2f), peak %d/%d, avg acquire %.2fms%s",
+                averageDemand, averageInUse, averageDemand - averageInUse, window.getPeakActive(), maxPoolSize,
+                avgAcquireMillis, starved ? ", pool is starved" : "");
+        return new PoolSizeAdvice(maxPoolSize, averageInUse, averageDemand, window.getPeakActive(), recommended, reason);
+    }
+}
@@ -0,0 +1,92 @@
+package study.querydsl.monitor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+//요청마다 deadline을 정해서 SqlMetricsInterceptor가 만든 요청 SqlExecutionContext에 둔다.
+//repository는 남은 시간을 JPA query timeout으로 넘기고,
+//deadline이 지나면 watchdog이 context를 취소해서 실행 중인 statement를 cancel 한다.
+//(JDBC query timeout은 초 단위라서 1초 미만의 예산은 watchdog이 맞춘다)
+//SqlMetricsInterceptor 다음에 등록해야 한다.
+@Component
+public class QueryDeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+    public static final String TIMEOUT_PARAMETER = "timeoutMs";
+
+    private static final String WATCHDOG_ATTRIBUTE = QueryDeadlineInterceptor.class.getName() + ".watchdog";
+
+    private final long defaultTimeoutMillis;
+    private final long maxTimeoutMillis;
+    private final ScheduledThreadPoolExecutor watchdog;
+
+    public QueryDeadlineInterceptor(@Value("${member.deadline.default-timeout-ms:5000}") long defaultTimeoutMillis,
+                                    @Value("${member.deadline.max-timeout-ms:30000}") long maxTimeoutMillis) {
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        this.watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("query-deadline-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //완료된 요청의 취소 예약이 큐에 쌓이지 않게 한다
+        this.watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlExecutionContext context = (SqlExecutionContext) request.getAttribute(SqlMetricsInterceptor.CONTEXT_ATTRIBUTE);
+        //async 재dispatch 시에는 처음 정한 deadline을 그대로 쓴다
+        if (context == null || request.getAttribute(WATCHDOG_ATTRIBUTE) != null) {
+            return true;
+        }
+        long timeoutMillis = timeoutMillis(request);
+        context.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        request.setAttribute(WATCHDOG_ATTRIBUTE, watchdog.schedule(context::cancel, timeoutMillis, TimeUnit.MILLISECONDS));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ScheduledFuture<?> scheduled = (ScheduledFuture<?>) request.getAttribute(WATCHDOG_ATTRIBUTE);
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    //헤더 또는 파라미터로 요청한 값. 없거나 잘못된 값이면 기본값, 최대값을 넘으면 최대값
+    long timeoutMillis(HttpServletRequest request) {
+        String value = request.getHeader(TIMEOUT_HEADER);
+        if (!StringUtils.hasText(value)) {
+            value = request.getParameter(TIMEOUT_PARAMETER);
+        }
+        long timeout = defaultTimeoutMillis;
+        if (StringUtils.hasText(value)) {
+            try {
+                timeout = Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                timeout = defaultTimeoutMillis;
+            }
+        }
+        if (timeout <= 0) {
+            timeout = defaultTimeoutMillis;
+        }
+        return Math.min(timeout, maxTimeoutMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.monitor;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+//repository 메서드 단위(예: MemberJpaRepository.search)로 SQL 통계를 집계한다.
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private static final String REPOSITORY_PACKAGE = "study.querydsl.repository";
+
+    private final SqlMetricsRegistry registry;
+
+    public RepositoryMetricsAspect(SqlMetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * study.querydsl.repository.MemberJpaRepository.*(..))"
+            + " || this(study.querydsl.repository.MemberRepository)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        SqlExecutionContext context = new SqlExecutionContext();
+        SqlExecutionContext.push(context);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            SqlExecutionContext.pop(context);
+            registry.record(repositoryName(joinPoint) + "." + joinPoint.getSignature().getName(), context);
+        }
+    }
+
+    //Spring Data repository는 target이 SimpleJpaRepository이므로 프록시가 구현한 우리 인터페이스 이름을 쓴다
+    private String repositoryName(ProceedingJoinPoint joinPoint) {
+        for (Class<?> type : joinPoint.getThis().getClass().getInterfaces()) {
+            if (type.getPackage() != null && type.getPackage().getName().equals(REPOSITORY_PACKAGE)) {
+                return type.getSimpleName();
+            }
+        }
+        return AopUtils.getTargetClass(joinPoint.getTarget()).getSimpleName();
+    }
+}
@@ -0,0 +1,164 @@
+package study.querydsl.monitor;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//하나의 HTTP 요청 또는 repository 메서드 호출 동안 실행된 SQL 통계를 모은다.
+//현재 스레드에 push 된 모든 context에 같이 기록되므로 요청 단위와 repository 단위가 동시에 집계된다.
+//요청 context에는 deadline을 둘 수 있고, cancel() 하면 실행 중인 statement를 취소하고 이후 실행을 막는다.
+//쓰기 트랜잭션이 실행되면 표시해 두고, ReadWriteRoutingDataSource가 이후 읽기를 primary로 보낼 때 쓴다.
+public class SqlExecutionContext {
+
+    private static final ThreadLocal<Deque<SqlExecutionContext>> ACTIVE = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong dbNanos = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong entities = new AtomicLong();
+    private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+    private volatile long deadlineNanos;
+    private volatile boolean hasDeadline;
+    private volatile boolean cancelled;
+    private volatile boolean written;
+
+    public static void push(SqlExecutionContext context) {
+        ACTIVE.get().push(context);
+    }
+
+    public static void pop(SqlExecutionContext context) {
+        ACTIVE.get().remove(context);
+    }
+
+    static List<SqlExecutionContext> active() {
+        return new ArrayList<>(ACTIVE.get());
+    }
+
+    //현재 스레드의 context들을 다른 스레드(DeferredResult timeout 콜백 등)에서 취소할 수 있게 넘겨준다
+    public static Runnable cancellerForCurrentThread() {
+        List<SqlExecutionContext> contexts = active();
+        return () -> contexts.forEach(SqlExecutionContext::cancel);
+    }
+
+    //현재 스레드의 deadline까지 남은 시간. deadline이 없으면 empty, 지났거나 취소됐으면 0
+    public static OptionalLong remainingMillis() {
+        OptionalLong remaining = OptionalLong.empty();
+        for (SqlExecutionContext context : ACTIVE.get()) {
+            long millis;
+            if (context.cancelled) {
+                millis = 0;
+            } else if (context.hasDeadline) {
+                millis = Math.max(0, TimeUnit.NANOSECONDS.toMillis(context.deadlineNanos - System.nanoTime()));
+            } else {
+                continue;
+            }
+            if (!remaining.isPresent() || millis < remaining.getAsLong()) {
+                remaining = OptionalLong.of(millis);
+            }
+        }
+        return remaining;
+    }
+
+    //실행 전에 등록해서 cancel()이 찾을 수 있게 한다. 이미 취소된 context면 실행하지 않는다
+    static void beginStatement(Statement statement) throws SQLTimeoutException {
+        for (SqlExecutionContext context : ACTIVE.get()) {
+            context.running.add(statement);
+            //등록과 취소가 겹칠 수 있으므로 등록한 뒤에 확인한다
+            if (context.cancelled) {
+                endStatement(statement);
+                throw new SQLTimeoutException("query cancelled: request deadline exceeded or client gone");
+            }
+        }
+    }
+
+    static void endStatement(Statement statement) {
+        for (SqlExecutionContext context : ACTIVE.get()) {
+            context.running.remove(statement);
+        }
+    }
+
+    public static void markWritten() {
+        for (SqlExecutionContext context : ACTIVE.get()) {
+            context.written = true;
+        }
+    }
+
+    //현재 스레드의 context 중 하나라도 쓰기 트랜잭션을 실행했는지
+    public static boolean hasWritten() {
+        for (SqlExecutionContext context : ACTIVE.get()) {
+            if (context.written) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = true;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        for (Statement statement : running) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                //이미 끝났거나 드라이버가 취소를 지원하지 않는 경우. JDBC query timeout에 맡긴다
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    static void recordStatement(long nanos) {
+        for (SqlExecutionContext context : ACTIVE.get()) {
+            context.statements.incrementAndGet();
+            context.dbNanos.addAndGet(nanos);
+        }
+    }
+
+    static void recordRow() {
+        for (SqlExecutionContext context : ACTIVE.get()) {
+            context.rows.incrementAndGet();
+        }
+    }
+
+    static void recordEntity() {
+        for (SqlExecutionContext context : ACTIVE.get()) {
+            context.entities.incrementAndGet();
+        }
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    public long getDbNanos() {
+        return dbNanos.get();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getEntities() {
+        return entities.get();
+    }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.monitor;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Component;
+import study.querydsl.datasource.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+
+@Component
+public class SqlMetricsDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ConnectionPoolRegistry connectionPoolRegistry;
+
+    public SqlMetricsDataSourcePostProcessor(ConnectionPoolRegistry connectionPoolRegistry) {
+        this.connectionPoolRegistry = connectionPoolRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !isReadWriteRouting(bean)) {
+            DataSource dataSource = (DataSource) bean;
+            return JdbcMetricsProxy.wrap(dataSource, connectionPoolRegistry.register(beanName, dataSource));
+        }
+        return bean;
+    }
+
+    //primary/replica 풀을 이미 감싸서 등록했으므로(ReadReplicaDataSourceConfig) 다시 감싸면 statement가 두 번 기록된다
+    private boolean isReadWriteRouting(Object bean) {
+        return bean instanceof LazyConnectionDataSourceProxy
+                && ((LazyConnectionDataSourceProxy) bean).getTargetDataSource() instanceof ReadWriteRoutingDataSource;
+    }
+}
@@ -0,0 +1,55 @@
+package study.querydsl.monitor;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+//컨트롤러 메서드 단위(예: MemberController.serachMemberV1)로 요청 하나의 SQL 통계를 집계한다.
+@Component
+public class SqlMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    static final String CONTEXT_ATTRIBUTE = SqlMetricsInterceptor.class.getName() + ".context";
+
+    private final SqlMetricsRegistry registry;
+
+    public SqlMetricsInterceptor(SqlMetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        //async 재dispatch 시에는 처음 만든 context를 이어서 사용한다
+        SqlExecutionContext context = (SqlExecutionContext) request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (context == null) {
+            context = new SqlExecutionContext();
+            request.setAttribute(CONTEXT_ATTRIBUTE, context);
+        }
+        SqlExecutionContext.push(context);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlExecutionContext context = (SqlExecutionContext) request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (context != null) {
+            SqlExecutionContext.pop(context);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SqlExecutionContext context = (SqlExecutionContext) request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (context == null || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        SqlExecutionContext.pop(context);
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        registry.record(handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName(), context);
+    }
+}
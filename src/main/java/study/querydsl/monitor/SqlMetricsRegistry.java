@@ -0,0 +1,54 @@
+package study.querydsl.monitor;
+
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.SqlMetricStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//tag(컨트롤러 메서드, repository 메서드)별 SQL 카운터와 지연시간 히스토그램
+@Component
+public class SqlMetricsRegistry {
+
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    public void record(String tag, SqlExecutionContext context) {
+        Metric metric = metrics.computeIfAbsent(tag, t -> new Metric());
+        metric.calls.increment();
+        metric.statements.add(context.getStatements());
+        metric.dbNanos.add(context.getDbNanos());
+        metric.rows.add(context.getRows());
+        metric.entities.add(context.getEntities());
+        metric.latency.record(context.elapsedNanos());
+        metric.dbTime.record(context.getDbNanos());
+    }
+
+    public List<SqlMetricStats> snapshot() {
+        List<SqlMetricStats> result = new ArrayList<>();
+        metrics.forEach((tag, metric) -> result.add(new SqlMetricStats(
+                tag,
+                metric.calls.sum(),
+                metric.statements.sum(),
+                TimeUnit.NANOSECONDS.toMillis(metric.dbNanos.sum()),
+                metric.rows.sum(),
+                metric.entities.sum(),
+                metric.latency.snapshot(),
+                metric.dbTime.snapshot())));
+        result.sort((a, b) -> a.getTag().compareTo(b.getTag()));
+        return result;
+    }
+
+    private static class Metric {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder dbNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder entities = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram dbTime = new LatencyHistogram();
+    }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.monitor;
+
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.List;
+
+//요청 스레드의 SqlExecutionContext를 작업 스레드로 넘겨서
+//다른 스레드에서 실행된 쿼리도 원래 요청의 통계에 합산되게 한다.
+public class SqlMetricsTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        List<SqlExecutionContext> contexts = SqlExecutionContext.active();
+        if (contexts.isEmpty()) {
+            return runnable;
+        }
+        return () -> {
+            contexts.forEach(SqlExecutionContext::push);
+            try {
+                runnable.run();
+            } finally {
+                contexts.forEach(SqlExecutionContext::pop);
+            }
+        };
+    }
+}
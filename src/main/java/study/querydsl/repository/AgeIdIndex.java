@@ -0,0 +1,172 @@
+package study.querydsl.repository;
+
+import java.util.Arrays;
+
+//(age, memberId) 쌍을 age, id 순으로 정렬해서 int[], long[] 두 배열에 나눠 담는다.
+//박싱된 컬렉션(TreeMap<Integer, Set<Long>> 등)은 건당 수십 바이트를 쓰지만 여기서는 건당 12바이트이다.
+//동기화는 하지 않는다. 호출하는 쪽(MemberAgeIndex)에서 락을 잡는다.
+class AgeIdIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] ages;
+    private long[] ids;
+    private int size;
+
+    AgeIdIndex() {
+        this(INITIAL_CAPACITY);
+    }
+
+    AgeIdIndex(int capacity) {
+        ages = new int[Math.max(capacity, 16)];
+        ids = new long[Math.max(capacity, 16)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    //재구성한 인덱스로 내용을 바꾼다. 배열은 공유하지 않고 그대로 넘겨받는다
+    void replaceWith(AgeIdIndex other) {
+        ages = other.ages;
+        ids = other.ids;
+        size = other.size;
+    }
+
+    //정렬 순서대로 들어오는 경우(재구성)에는 뒤에 붙이기만 한다
+    void append(int age, long id) {
+        if (size > 0 && compare(ages[size - 1], ids[size - 1], age, id) >= 0) {
+            insert(age, id);
+            return;
+        }
+        ensureCapacity(size + 1);
+        ages[size] = age;
+        ids[size] = id;
+        size++;
+    }
+
+    //이미 있으면 무시한다. 재구성과 이벤트가 겹쳐서 같은 변경이 두 번 들어와도 결과가 같다.
+    boolean insert(int age, long id) {
+        int pos = search(age, id);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -(pos + 1);
+        ensureCapacity(size + 1);
+        System.arraycopy(ages, pos, ages, pos + 1, size - pos);
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ages[pos] = age;
+        ids[pos] = id;
+        size++;
+        return true;
+    }
+
+    boolean remove(int age, long id) {
+        int pos = search(age, id);
+        if (pos < 0) {
+            return false;
+        }
+        removeAt(pos);
+        return true;
+    }
+
+    //이전 나이를 모르는 경우에만 쓴다. O(n)
+    boolean removeById(long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //ageGoe <= age <= ageLoe 인 건수. null은 제한 없음
+    int count(Integer ageGoe, Integer ageLoe) {
+        return Math.max(0, upperBound(ageLoe) - lowerBound(ageGoe));
+    }
+
+    //ageGoe <= age <= ageLoe 인 member id. age, id 순서로 정렬되어 있다.
+    long[] ids(Integer ageGoe, Integer ageLoe) {
+        int from = lowerBound(ageGoe);
+        int to = upperBound(ageLoe);
+        if (from >= to) {
+            return new long[0];
+        }
+        return Arrays.copyOfRange(ids, from, to);
+    }
+
+    //age >= ageGoe 인 첫 위치
+    private int lowerBound(Integer ageGoe) {
+        if (ageGoe == null) {
+            return 0;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ages[mid] < ageGoe) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    //age > ageLoe 인 첫 위치
+    private int upperBound(Integer ageLoe) {
+        if (ageLoe == null) {
+            return size;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ages[mid] <= ageLoe) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    //Arrays.binarySearch와 같은 규약: 없으면 -(삽입 위치) - 1
+    private int search(int age, long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(ages[mid], ids[mid], age, id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void removeAt(int pos) {
+        System.arraycopy(ages, pos + 1, ages, pos, size - pos - 1);
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ages.length) {
+            return;
+        }
+        int capacity = Math.max(required, ages.length + (ages.length >> 1));
+        ages = Arrays.copyOf(ages, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+    }
+
+    private static int compare(int age1, long id1, int age2, long id2) {
+        int cmp = Integer.compare(age1, age2);
+        return cmp != 0 ? cmp : Long.compare(id1, id2);
+    }
+}
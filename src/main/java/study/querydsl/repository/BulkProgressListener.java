@@ -0,0 +1,11 @@
+package study.querydsl.repository;
+
+//chunk 하나가 커밋될 때마다 호출된다.
+@FunctionalInterface
+public interface BulkProgressListener {
+
+    BulkProgressListener NONE = (completedChunks, totalChunks, affectedRows) -> {
+    };
+
+    void onChunk(long completedChunks, long totalChunks, long affectedRows);
+}
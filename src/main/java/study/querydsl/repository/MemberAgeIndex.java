@@ -0,0 +1,253 @@
+package study.querydsl.repository;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.MemberBulkChangedEvent;
+import study.querydsl.event.MemberChangedEvent;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static study.querydsl.entity.QMember.member;
+
+//ageGoe/ageLoe 조건을 DB에 가기 전에 member id 목록으로 바꿔주는 JVM 내 보조 인덱스.
+//후보가 없으면 쿼리를 생략하고, 후보가 적으면 id in (...) 으로 PK 조회만 하게 한다.
+//커밋된 Member 변경 이벤트로 증분 갱신하고, 벌크 연산이나 native 쓰기(MemberWriteStatementInspector) 후에는
+//rebuild 스레드에서 전체를 다시 만든다.
+//처음 만드는 것과 놓친 이벤트를 맞추는 전체 재구성은 reconcile 주기로 스케줄러 스레드에서 한다.
+//조회 스레드는 재구성하지 않고 락도 기다리지 않는다. 준비 전이면 인덱스 없이 DB로 간다.
+//재구성은 락 밖에서 하므로 그동안에도 기존 인덱스로 답하고, 커밋 스레드도 전체 조회를 기다리지 않는다.
+@Component
+public class MemberAgeIndex {
+
+    private final AgeIdIndex index = new AgeIdIndex();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ThreadPoolTaskExecutor rebuilder = new ThreadPoolTaskExecutor();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    //벌크 연산마다 증가한다. 재구성 중에 벌크 연산이 커밋되면 읽은 데이터가 이미 낡았으므로 ready로 만들지 않는다
+    private final AtomicLong bulkChanges = new AtomicLong();
+    private final Object txInvalidationKey = new Object();
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyNewTx;
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final int fetchSize;
+    private volatile boolean ready;
+    //재구성 중에만 null이 아니다. write lock을 잡고 읽고 쓴다
+    private List<MemberChangedEvent> pendingEvents;
+
+    public MemberAgeIndex(EntityManager em,
+                          PlatformTransactionManager transactionManager,
+                          MemberWriteStatementInspector writeStatementInspector,
+                          @Value("${member.age-index.enabled:false}") boolean enabled,
+                          @Value("${member.age-index.max-candidates:1000}") int maxCandidates,
+                          @Value("${member.age-index.fetch-size:1000}") int fetchSize) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.readOnlyNewTx = new TransactionTemplate(transactionManager);
+        this.readOnlyNewTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyNewTx.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+        this.fetchSize = fetchSize;
+        rebuilder.setCorePoolSize(1);
+        rebuilder.setMaxPoolSize(1);
+        rebuilder.setThreadNamePrefix("member-age-index-");
+        rebuilder.initialize();
+        writeStatementInspector.addBulkWriteListener(sql -> {
+            if (MemberWriteStatementInspector.writesColumn(sql, "age")) {
+                invalidateAfterWrite();
+            }
+        });
+    }
+
+    //나이 조건에 맞는 member id. 인덱스로 답할 수 없으면 null
+    //(비활성, 나이 조건 없음, 쓰기 트랜잭션 안, 준비 전, 후보가 maxCandidates 초과)
+    public long[] candidates(MemberSearchCondition cond) {
+        if (!enabled || (cond.getAgeGoe() == null && cond.getAgeLoe() == null)) {
+            return null;
+        }
+        //쓰기 트랜잭션 안에서는 아직 커밋되지 않은 자기 변경이 인덱스에 없다
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        if (!ready || !lock.readLock().tryLock()) {
+            return null;
+        }
+        try {
+            if (!ready || index.count(cond.getAgeGoe(), cond.getAgeLoe()) > maxCandidates) {
+                return null;
+            }
+            return index.ids(cond.getAgeGoe(), cond.getAgeLoe());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        //재구성 중이면 새 인덱스에 다시 반영하기 위해 모아둔다. 락은 배열 하나를 고치는 동안만 잡는다
+        lock.writeLock().lock();
+        try {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            if (ready) {
+                apply(index, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //insert/remove는 멱등이므로 재구성 결과에 이미 들어간 변경을 다시 반영해도 결과가 같다
+    private static void apply(AgeIdIndex target, MemberChangedEvent event) {
+        long id = event.getMemberId();
+        if (event.getBefore() != null) {
+            target.remove(event.getBefore().getAge(), id);
+        } else if (event.isBeforeUnknown()) {
+            target.removeById(id);
+        }
+        if (event.getAfter() != null) {
+            target.insert(event.getAfter().getAge(), id);
+        }
+    }
+
+    //어떤 회원이 바뀌었는지 모르므로 인덱스를 내리고 rebuild 스레드에서 다시 만든다
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberBulkChanged(MemberBulkChangedEvent event) {
+        if (event.getOperation().changesAge()) {
+            invalidate();
+        }
+    }
+
+    //벌크/native 쓰기 SQL은 커밋(또는 롤백) 후에 내린다.
+    //커밋 전에 다시 만들면 아직 보이지 않는 변경이 빠진 인덱스가 ready가 된다.
+    private void invalidateAfterWrite() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        if (!TransactionSynchronizationManager.hasResource(txInvalidationKey)) {
+            TransactionSynchronizationManager.bindResource(txInvalidationKey, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(txInvalidationKey);
+                    invalidate();
+                }
+            });
+        }
+    }
+
+    private void invalidate() {
+        bulkChanges.incrementAndGet();
+        ready = false;
+        requestRebuild();
+    }
+
+    //첫 실행(initial delay 없음)이 시작 시점의 인덱스 생성이다
+    @Scheduled(fixedDelayString = "${member.age-index.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    //이미 대기 중인 재구성이 있으면 합친다
+    private void requestRebuild() {
+        if (enabled && rebuildRequested.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildRequested.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    //전체 조회는 락 밖에서 새 인덱스에 만든다. 그동안 커밋된 단건 변경은 pendingEvents에 모아뒀다가
+    //짧게 write lock을 잡고 새 인덱스로 바꾼 뒤 다시 반영한다.
+    //스케줄러와 rebuild 스레드가 동시에 만들지 않도록 rebuildLock으로 한 번에 하나씩 실행한다.
+    private void rebuild() {
+        rebuildLock.lock();
+        try {
+            long bulkChangesBefore = bulkChanges.get();
+            lock.writeLock().lock();
+            try {
+                pendingEvents = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            AgeIdIndex rebuilt = null;
+            try {
+                rebuilt = readOnlyNewTx.execute(status -> load());
+            } finally {
+                swap(rebuilt, bulkChangesBefore);
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    //rebuilt가 null이면(조회 실패) 버퍼만 버리고 기존 인덱스와 ready 상태를 그대로 둔다
+    private void swap(AgeIdIndex rebuilt, long bulkChangesBefore) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilt != null) {
+                for (MemberChangedEvent event : pendingEvents) {
+                    apply(rebuilt, event);
+                }
+                index.replaceWith(rebuilt);
+                ready = bulkChanges.get() == bulkChangesBefore;
+            }
+            pendingEvents = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdown();
+    }
+
+    private AgeIdIndex load() {
+        AgeIdIndex loaded = new AgeIdIndex();
+        try (CloseableIterator<Tuple> rows = queryFactory
+                .select(member.age, member.id)
+                .from(member)
+                .orderBy(member.age.asc(), member.id.asc())
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .iterate()) {
+            while (rows.hasNext()) {
+                Tuple row = rows.next();
+                loaded.append(row.get(member.age), row.get(member.id));
+            }
+        }
+        return loaded;
+    }
+}
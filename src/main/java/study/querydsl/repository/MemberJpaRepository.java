@@ -1,20 +1,55 @@
 package study.querydsl.repository;
 
 
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.commons.lang.EmptyCloseableIterator;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberCursorSort;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.MemberBulkChangedEvent;
+import study.querydsl.monitor.SqlExecutionContext;
 
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.BiFunction;
 
 import static org.springframework.util.StringUtils.*;
 import static study.querydsl.entity.QMember.member;
@@ -25,59 +60,170 @@ public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchQueryCache searchQueryCache;
+    private final MemberSearchResultCache searchResultCache;
+    private final MemberAgeIndex ageIndex;
+    private final MemberUsernameIndex usernameIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em,
+                               MemberSearchQueryCache searchQueryCache,
+                               MemberSearchResultCache searchResultCache,
+                               MemberAgeIndex ageIndex,
+                               MemberUsernameIndex usernameIndex,
+                               PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher eventPublisher) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.searchQueryCache = searchQueryCache;
+        this.searchResultCache = searchResultCache;
+        this.ageIndex = ageIndex;
+        this.usernameIndex = usernameIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
     }
 
+    //save와 벌크 연산을 뺀 조회 메서드는 모두 readOnly 트랜잭션으로 실행한다.
+    //datasource.replica.enabled=true 이면 ReadWriteRoutingDataSource가 replica로 보낸다.
+    //호출한 쪽의 쓰기 트랜잭션에 참여하면 readOnly는 무시되고 primary에서 읽는다.
     public void save(Member member) {
         em.persist(member);
+        searchResultCache.invalidateAfterWrite();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
     }
 
+    //아래 엔티티 조회 메서드는 readOnly 트랜잭션(flush mode MANUAL)과 org.hibernate.readOnly 힌트로
+    //dirty checking 스냅샷을 만들지 않는다.
+    //호출한 쪽의 쓰기 트랜잭션에 참여한 경우에는 힌트를 붙이지 않으므로 읽은 엔티티를 수정하면 평소처럼 반영된다.
+    @Transactional(readOnly = true)
     public Member findById_Querydsl(Long id) {
         return queryFactory
                 .selectFrom(member)
                 .where(member.id.eq(id))
+                .setHint(QueryHints.READ_ONLY, readOnlyTransaction())
                 .fetchOne();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
+                .setHint(QueryHints.READ_ONLY, readOnlyTransaction())
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl() {
         return queryFactory
                 .selectFrom(member)
+                .setHint(QueryHints.READ_ONLY, readOnlyTransaction())
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username = :username", Member.class)
                 .setParameter("username", username)
+                .setHint(QueryHints.READ_ONLY, readOnlyTransaction())
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username) {
        return queryFactory
                .selectFrom(member)
                .where(member.username.eq(username))
+               .setHint(QueryHints.READ_ONLY, readOnlyTransaction())
                .fetch();
 
     }
 
+    //team까지 한 번에 조회해야 하는 경우 fetch join 버전을 사용한다.
+    //그 외 finder는 hibernate.default_batch_fetch_size 설정으로 team을 IN 쿼리로 모아서 가져온다.
+    @Transactional(readOnly = true)
+    public List<Member> findAllWithTeam() {
+        return em.createQuery("select m from Member m left join fetch m.team", Member.class)
+                .getResultList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findAllWithTeam_Querydsl() {
+        return queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .fetch();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findByUsernameWithTeam(String username) {
+        return em.createQuery("select m from Member m left join fetch m.team where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .getResultList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findByUsernameWithTeam_Querydsl(String username) {
+        return queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(member.username.eq(username))
+                .fetch();
+    }
+
+    private static final long MIN_QUERY_TIMEOUT_MILLIS = 1000;
+
+    //IN 절 바인딩 개수는 hibernate.query.in_clause_parameter_padding이 2의 거듭제곱으로 맞춘다.
+    //chunk 크기도 2의 거듭제곱으로 두면 SQL 종류가 늘어나지 않는다.
+    private static final int ID_CHUNK_SIZE = 512;
+
+    //findById를 id 수만큼 반복하는 대신 IN 쿼리로 한 번에(최대 512개씩) 조회한다.
+    //team은 fetch join 한다. 결과는 입력 순서를 따르고 없는 id, 중복 id, null은 빠진다.
+    @Transactional(readOnly = true)
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinctIds.removeIf(Objects::isNull);
+
+        Map<Long, Member> found = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + ID_CHUNK_SIZE, distinctIds.size()));
+            List<Member> members = queryFactory
+                    .selectFrom(member)
+                    .leftJoin(member.team, team).fetchJoin()
+                    .where(member.id.in(chunk))
+                    .fetch();
+            for (Member m : members) {
+                found.put(m.getId(), m);
+            }
+        }
+
+        List<Member> result = new ArrayList<>(found.size());
+        for (Long id : distinctIds) {
+            Member m = found.get(id);
+            if (m != null) {
+                result.add(m);
+            }
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
 
         BooleanBuilder builder = new BooleanBuilder();
         if (hasText(condition.getUsername())) {
             builder.and(member.username.eq(condition.getUsername()));
         }
+        if (hasText(condition.getUsernameStartsWith())) {
+            builder.and(member.username.startsWith(condition.getUsernameStartsWith()));
+        }
+        if (hasText(condition.getUsernameContains())) {
+            builder.and(member.username.contains(condition.getUsernameContains()));
+        }
         if(hasText(condition.getTeamName())){
             builder.and(team.name.eq(condition.getTeamName()));
         }
@@ -101,7 +247,118 @@ public class MemberJpaRepository {
 
     }
 
+    //조건 조합(shape)별로 미리 만들어 둔 JPQL에 파라미터만 바인딩한다.
+    //where 절은 usernameEq, usernameStartsWith, usernameContains, teamNameEq, ageGoe, ageLoe와 같은 의미이다.
+    //같은 조건의 결과는 MemberSearchResultCache에서 바로 반환한다.
+    //MemberAgeIndex, MemberUsernameIndex가 켜져 있으면 나이/부분 문자열 조건을 먼저 id 후보로 바꿔서
+    //후보가 없으면 쿼리를 생략하고, 후보가 적으면 id in (...) 으로 조회한다.
+    @Transactional(readOnly = true)
     public  List<MemberTeamDto> search(MemberSearchCondition cond){
+        return searchResultCache.get(cond, () -> {
+            long[] candidates = indexCandidates(cond);
+            if (candidates == null) {
+                TypedQuery<MemberTeamDto> query = searchQueryCache.createQuery(em, cond);
+                queryTimeout().ifPresent(timeout -> query.setHint(QueryHints.TIMEOUT_JPA, timeout));
+                return query.getResultList();
+            }
+            if (candidates.length == 0) {
+                return new ArrayList<>();
+            }
+            return searchByIds(cond, candidates);
+        });
+    }
+
+    //요청 deadline(QueryDeadlineInterceptor)까지 남은 시간을 JPA query timeout(ms)으로 넘긴다.
+    //JDBC query timeout은 초 단위라서 1초 미만으로는 줄이지 않는다. 더 짧은 예산은 watchdog이 statement를 취소한다.
+    private OptionalInt queryTimeout() {
+        OptionalLong remaining = SqlExecutionContext.remainingMillis();
+        if (!remaining.isPresent()) {
+            return OptionalInt.empty();
+        }
+        if (remaining.getAsLong() <= 0) {
+            throw new QueryTimeoutException("member search deadline exceeded");
+        }
+        return OptionalInt.of((int) Math.min(Integer.MAX_VALUE, Math.max(MIN_QUERY_TIMEOUT_MILLIS, remaining.getAsLong())));
+    }
+
+    //쓰기 트랜잭션에 참여 중이면 false. 읽은 엔티티가 수정 대상일 수 있으므로 읽기 전용으로 만들지 않는다
+    private static boolean readOnlyTransaction() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    //MemberAgeIndex, MemberUsernameIndex로 좁힌 member id 후보. null은 인덱스로 좁히지 못한 경우(제한 없음)
+    private long[] indexCandidates(MemberSearchCondition cond) {
+        return intersect(ageIndex.candidates(cond), usernameIndex.candidates(cond));
+    }
+
+    //인덱스가 이벤트보다 늦을 수 있고 trigram 후보는 상위 집합이므로 호출하는 쪽은 원래 조건도 그대로 둔다
+    private static BooleanExpression idIn(long[] candidates) {
+        if (candidates == null) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>(candidates.length);
+        for (long id : candidates) {
+            ids.add(id);
+        }
+        return member.id.in(ids);
+    }
+
+    //null은 제한 없음
+    private static long[] intersect(long[] a, long[] b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        long[] left = a.clone();
+        long[] right = b.clone();
+        Arrays.sort(left);
+        Arrays.sort(right);
+        long[] result = new long[Math.min(left.length, right.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private List<MemberTeamDto> searchByIds(MemberSearchCondition cond, long[] candidates) {
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        idIn(candidates),
+                        usernameEq(cond.getUsername()),
+                        usernameStartsWith(cond.getUsernameStartsWith()),
+                        usernameContains(cond.getUsernameContains()),
+                        teamNameEq(cond.getTeamName()),
+                        ageGoe(cond.getAgeGoe()),
+                        ageLoe(cond.getAgeLoe()));
+        queryTimeout().ifPresent(timeout -> query.setHint(QueryHints.TIMEOUT_JPA, timeout));
+        return query.fetch();
+    }
+
+    //결과를 List로 모으지 않고 forward-only 커서로 한 건씩 읽는다.
+    //반드시 트랜잭션 안에서 호출하고 다 읽은 뒤 close 해야 커넥션이 반환된다.
+    //search(cond)와 같이 인덱스 후보로 좁힌다. 페이지/커서/count 조회도 마찬가지이다.
+    @Transactional(readOnly = true)
+    public CloseableIterator<MemberTeamDto> iterate(MemberSearchCondition cond, int fetchSize) {
+        long[] candidates = indexCandidates(cond);
+        if (candidates != null && candidates.length == 0) {
+            return new EmptyCloseableIterator<>();
+        }
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -112,14 +369,260 @@ public class MemberJpaRepository {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
+                        idIn(candidates),
                         usernameEq(cond.getUsername()),
+                        usernameStartsWith(cond.getUsernameStartsWith()),
+                        usernameContains(cond.getUsernameContains()),
                         teamNameEq(cond.getTeamName()),
-                        ageGoe(cond.getAgeGoe() ),
+                        ageGoe(cond.getAgeGoe()),
                         ageLoe(cond.getAgeLoe())
                 )
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .iterate();
+    }
+
+    //content 쿼리와 count 쿼리를 분리한다.
+    //첫 페이지가 page size보다 작거나 마지막 페이지면 PageableExecutionUtils가 count 쿼리를 생략한다.
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> search(MemberSearchCondition cond, Pageable pageable) {
+        List<MemberTeamDto> content = searchContent(cond, pageable);
+        return PageableExecutionUtils.getPage(content, pageable, () -> searchCount(cond));
+    }
+
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> searchContent(MemberSearchCondition cond, Pageable pageable) {
+        long[] candidates = indexCandidates(cond);
+        if (candidates != null && candidates.length == 0) {
+            return new ArrayList<>();
+        }
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        idIn(candidates),
+                        usernameEq(cond.getUsername()),
+                        usernameStartsWith(cond.getUsernameStartsWith()),
+                        usernameContains(cond.getUsernameContains()),
+                        teamNameEq(cond.getTeamName()),
+                        ageGoe(cond.getAgeGoe()),
+                        ageLoe(cond.getAgeLoe())
+                )
+                .orderBy(pageOrder(pageable.getSort()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
                 .fetch();
     }
 
+    //left join은 member row 수를 바꾸지 않으므로 팀 조건이 없으면 count에서 join을 뺀다.
+    @Transactional(readOnly = true)
+    public long searchCount(MemberSearchCondition cond) {
+        long[] candidates = indexCandidates(cond);
+        if (candidates != null && candidates.length == 0) {
+            return 0;
+        }
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member);
+        if (hasText(cond.getTeamName())) {
+            countQuery.leftJoin(member.team, team);
+        }
+        return countQuery
+                .where(
+                        idIn(candidates),
+                        usernameEq(cond.getUsername()),
+                        usernameStartsWith(cond.getUsernameStartsWith()),
+                        usernameContains(cond.getUsernameContains()),
+                        teamNameEq(cond.getTeamName()),
+                        ageGoe(cond.getAgeGoe()),
+                        ageLoe(cond.getAgeLoe())
+                )
+                .fetchOne();
+    }
+
+    //OFFSET 대신 마지막 row의 정렬 키 이후를 seek 하므로 페이지 깊이와 상관없이 비용이 일정하다.
+    //size + 1 건을 조회해서 다음 페이지 존재 여부를 판단한다.
+    @Transactional(readOnly = true)
+    public MemberCursorPage searchByCursor(MemberSearchCondition cond, MemberCursorSort sort, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        MemberCursor after = MemberCursor.decode(cursor, sort);
+        long[] candidates = indexCandidates(cond);
+        if (candidates != null && candidates.length == 0) {
+            return new MemberCursorPage(new ArrayList<>(), null);
+        }
+
+        List<MemberTeamDto> rows = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        idIn(candidates),
+                        usernameEq(cond.getUsername()),
+                        usernameStartsWith(cond.getUsernameStartsWith()),
+                        usernameContains(cond.getUsernameContains()),
+                        teamNameEq(cond.getTeamName()),
+                        ageGoe(cond.getAgeGoe()),
+                        ageLoe(cond.getAgeLoe()),
+                        cursorAfter(after)
+                )
+                .orderBy(cursorOrder(sort))
+                .limit(size + 1)
+                .fetch();
+
+        if (rows.size() <= size) {
+            return new MemberCursorPage(rows, null);
+        }
+        List<MemberTeamDto> content = new ArrayList<>(rows.subList(0, size));
+        String nextCursor = MemberCursor.after(content.get(size - 1), sort).encode();
+        return new MemberCursorPage(content, nextCursor);
+    }
+
+    //벌크 연산은 조건에 맞는 id 범위를 chunkSize 단위로 잘라서 chunk마다 트랜잭션을 나눠 실행한다.
+    //한 번의 거대한 UPDATE가 테이블 락을 오래 잡지 않게 하기 위함이다.
+    //호출한 쪽에 트랜잭션이 있으면 그 트랜잭션에 참여하고, 끝나면 영속성 컨텍스트를 비운다.
+    public long bulkAgePlus(MemberSearchCondition cond, int delta, int chunkSize, BulkProgressListener listener) {
+        return bulkInChunks(MemberBulkChangedEvent.Operation.AGE_PLUS, cond, chunkSize, listener, (from, to) -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .where(bulkWhere(cond))
+                .where(member.id.between(from, to))
+                .execute());
+    }
+
+    public long bulkChangeTeam(MemberSearchCondition cond, Long teamId, int chunkSize, BulkProgressListener listener) {
+        return bulkInChunks(MemberBulkChangedEvent.Operation.CHANGE_TEAM, cond, chunkSize, listener, (from, to) -> queryFactory
+                .update(member)
+                .set(member.team, em.getReference(Team.class, teamId))
+                .where(bulkWhere(cond))
+                .where(member.id.between(from, to))
+                .execute());
+    }
+
+    public long bulkDelete(MemberSearchCondition cond, int chunkSize, BulkProgressListener listener) {
+        return bulkInChunks(MemberBulkChangedEvent.Operation.DELETE, cond, chunkSize, listener, (from, to) -> queryFactory
+                .delete(member)
+                .where(bulkWhere(cond))
+                .where(member.id.between(from, to))
+                .execute());
+    }
+
+    private long bulkInChunks(MemberBulkChangedEvent.Operation operation, MemberSearchCondition cond, int chunkSize,
+                              BulkProgressListener listener, BiFunction<Long, Long, Long> chunkOperation) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        Tuple range = transactionTemplate.execute(status -> {
+            //아직 flush 되지 않은 변경도 벌크 연산 대상에 포함시킨다
+            em.flush();
+            return queryFactory
+                    .select(member.id.min(), member.id.max())
+                    .from(member)
+                    .where(bulkWhere(cond))
+                    .fetchOne();
+        });
+        Long minId = range == null ? null : range.get(member.id.min());
+        Long maxId = range == null ? null : range.get(member.id.max());
+        if (minId == null || maxId == null) {
+            return 0;
+        }
+
+        long totalChunks = (maxId - minId) / chunkSize + 1;
+        long affected = 0;
+        for (long chunk = 0; chunk < totalChunks; chunk++) {
+            long from = minId + chunk * chunkSize;
+            long to = Math.min(from + chunkSize - 1, maxId);
+            Long chunkAffected = transactionTemplate.execute(status -> chunkOperation.apply(from, to));
+            affected += chunkAffected == null ? 0 : chunkAffected;
+            listener.onChunk(chunk + 1, totalChunks, affected);
+        }
+
+        //벌크 연산은 영속성 컨텍스트를 거치지 않으므로 남아있는 엔티티는 DB와 다르다
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            em.clear();
+        }
+        if (affected > 0) {
+            eventPublisher.publishEvent(new MemberBulkChangedEvent(operation, affected));
+        }
+        return affected;
+    }
+
+    //벌크 update/delete 에서는 join을 쓸 수 없으므로 팀 이름은 서브쿼리로 거른다
+    private BooleanExpression[] bulkWhere(MemberSearchCondition cond) {
+        return new BooleanExpression[]{
+                usernameEq(cond.getUsername()),
+                usernameStartsWith(cond.getUsernameStartsWith()),
+                usernameContains(cond.getUsernameContains()),
+                hasText(cond.getTeamName())
+                        ? member.team.id.in(JPAExpressions
+                                .select(team.id)
+                                .from(team)
+                                .where(team.name.eq(cond.getTeamName())))
+                        : null,
+                ageGoe(cond.getAgeGoe()),
+                ageLoe(cond.getAgeLoe())
+        };
+    }
+
+    private BooleanExpression cursorAfter(MemberCursor after) {
+        if (after == null) {
+            return null;
+        }
+        if (after.getSort() == MemberCursorSort.AGE) {
+            return member.age.gt(after.getAge())
+                    .or(member.age.eq(after.getAge()).and(member.id.gt(after.getMemberId())));
+        }
+        return member.id.gt(after.getMemberId());
+    }
+
+    //Pageable 정렬 속성은 MemberTeamDto 필드 이름으로 받는다. 지원하지 않는 속성이면 IllegalArgumentException.
+    //정렬 값이 같은 row가 페이지 경계에서 빠지거나 중복되지 않도록 마지막에 항상 member.id를 붙인다.
+    public static OrderSpecifier<?>[] pageOrder(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Order direction = order.isAscending() ? Order.ASC : Order.DESC;
+            switch (order.getProperty()) {
+                case "memberId":
+                    orders.add(new OrderSpecifier<>(direction, member.id));
+                    break;
+                case "username":
+                    orders.add(new OrderSpecifier<>(direction, member.username));
+                    break;
+                case "age":
+                    orders.add(new OrderSpecifier<>(direction, member.age));
+                    break;
+                case "teamId":
+                    orders.add(new OrderSpecifier<>(direction, team.id));
+                    break;
+                case "teamName":
+                    orders.add(new OrderSpecifier<>(direction, team.name));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unsupported sort property: " + order.getProperty());
+            }
+        }
+        orders.add(member.id.asc());
+        return orders.toArray(new OrderSpecifier<?>[0]);
+    }
+
+    private OrderSpecifier<?>[] cursorOrder(MemberCursorSort sort) {
+        if (sort == MemberCursorSort.AGE) {
+            return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        }
+        return new OrderSpecifier<?>[]{member.id.asc()};
+    }
+
     private BooleanExpression ageLoe(Integer ageLoe) {
         return ageLoe != null ? member.age.loe(ageLoe) : null;
 
@@ -137,5 +640,15 @@ public class MemberJpaRepository {
         return hasText(username) ? member.username.eq(username) : null;
     }
 
+    //like 'x%' escape '!' -> username 인덱스(idx_member_username)의 범위 검색이 된다
+    private BooleanExpression usernameStartsWith(String prefix) {
+        return hasText(prefix) ? member.username.startsWith(prefix) : null;
+    }
+
+    //like '%x%' escape '!' -> 인덱스를 쓸 수 없으므로 search에서는 MemberUsernameIndex로 먼저 후보를 줄인다
+    private BooleanExpression usernameContains(String text) {
+        return hasText(text) ? member.username.contains(text) : null;
+    }
+
 
 }
@@ -1,11 +1,18 @@
 package study.querydsl.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 public interface MemberRepository extends JpaRepository<Member, Long> {
+    //결과(id 목록)는 query cache에, 엔티티는 2차 캐시에 저장된다
+    //인터페이스에 선언한 finder는 SimpleJpaRepository의 readOnly 설정을 물려받지 않으므로 직접 붙인다 (replica 라우팅 대상)
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Member> findByUsername(String username);
     //select m from Member m where m.username = ?
 
@@ -0,0 +1,156 @@
+package study.querydsl.repository;
+
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.CacheStats;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.springframework.util.StringUtils.hasText;
+
+//MemberSearchCondition의 어떤 필드가 채워졌는지(shape)에 따라 JPQL을 한 번만 만들어 두고
+//요청마다 파라미터만 바인딩한다. JPQL 문자열이 같으므로 Hibernate query plan cache도 그대로 재사용된다.
+@Component
+public class MemberSearchQueryCache {
+
+    static final int USERNAME = 1;
+    static final int TEAM_NAME = 1 << 1;
+    static final int AGE_GOE = 1 << 2;
+    static final int AGE_LOE = 1 << 3;
+    static final int USERNAME_STARTS_WITH = 1 << 4;
+    static final int USERNAME_CONTAINS = 1 << 5;
+    static final int SHAPE_COUNT = 1 << 6;
+
+    //Querydsl의 startsWith/contains(JPQLTemplates)와 같은 escape 문자
+    static final char LIKE_ESCAPE = '!';
+
+    private final AtomicReferenceArray<String> templates = new AtomicReferenceArray<>(SHAPE_COUNT);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TypedQuery<MemberTeamDto> createQuery(EntityManager em, MemberSearchCondition cond) {
+        int shape = shapeOf(cond);
+        TypedQuery<MemberTeamDto> query = em.createQuery(jpql(shape), MemberTeamDto.class);
+        if ((shape & USERNAME) != 0) {
+            query.setParameter("username", cond.getUsername());
+        }
+        if ((shape & USERNAME_STARTS_WITH) != 0) {
+            query.setParameter("usernameStartsWith", escapeLike(cond.getUsernameStartsWith()) + "%");
+        }
+        if ((shape & USERNAME_CONTAINS) != 0) {
+            query.setParameter("usernameContains", "%" + escapeLike(cond.getUsernameContains()) + "%");
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            query.setParameter("teamName", cond.getTeamName());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            query.setParameter("ageGoe", cond.getAgeGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            query.setParameter("ageLoe", cond.getAgeLoe());
+        }
+        return query;
+    }
+
+    public CacheStats stats() {
+        int size = 0;
+        for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+            if (templates.get(shape) != null) {
+                size++;
+            }
+        }
+        return new CacheStats("memberSearchQueryTemplate", hits.sum(), misses.sum(), size);
+    }
+
+    static int shapeOf(MemberSearchCondition cond) {
+        int shape = 0;
+        if (hasText(cond.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (hasText(cond.getUsernameStartsWith())) {
+            shape |= USERNAME_STARTS_WITH;
+        }
+        if (hasText(cond.getUsernameContains())) {
+            shape |= USERNAME_CONTAINS;
+        }
+        if (hasText(cond.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (cond.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (cond.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+
+    //검색어에 들어있는 %, _ 는 와일드카드가 아니라 문자 그대로 찾는다
+    static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    String jpql(int shape) {
+        String jpql = templates.get(shape);
+        if (jpql != null) {
+            hits.increment();
+            return jpql;
+        }
+        misses.increment();
+        //동시에 만들어도 결과 문자열이 같으므로 먼저 들어간 값을 쓴다
+        templates.compareAndSet(shape, null, build(shape));
+        return templates.get(shape);
+    }
+
+    private String build(int shape) {
+        StringBuilder jpql = new StringBuilder()
+                .append("select new ").append(MemberTeamDto.class.getName())
+                .append("(m.id, m.username, m.age, t.id, t.name)");
+
+        //팀 이름 조건이 있으면 team이 없는 회원은 어차피 걸러지므로 inner join으로 바꿔서
+        //DB가 team(idx_team_name) -> member(idx_member_team_age) 순서로 조인할 수 있게 한다.
+        if ((shape & TEAM_NAME) != 0) {
+            jpql.append(" from Member m join m.team t");
+        } else {
+            jpql.append(" from Member m left join m.team t");
+        }
+
+        String prefix = " where ";
+        if ((shape & USERNAME) != 0) {
+            jpql.append(prefix).append("m.username = :username");
+            prefix = " and ";
+        }
+        if ((shape & USERNAME_STARTS_WITH) != 0) {
+            jpql.append(prefix).append("m.username like :usernameStartsWith escape '").append(LIKE_ESCAPE).append("'");
+            prefix = " and ";
+        }
+        if ((shape & USERNAME_CONTAINS) != 0) {
+            jpql.append(prefix).append("m.username like :usernameContains escape '").append(LIKE_ESCAPE).append("'");
+            prefix = " and ";
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            jpql.append(prefix).append("t.name = :teamName");
+            prefix = " and ";
+        }
+        if ((shape & AGE_GOE) != 0) {
+            jpql.append(prefix).append("m.age >= :ageGoe");
+            prefix = " and ";
+        }
+        if ((shape & AGE_LOE) != 0) {
+            jpql.append(prefix).append("m.age <= :ageLoe");
+        }
+        return jpql.toString();
+    }
+}
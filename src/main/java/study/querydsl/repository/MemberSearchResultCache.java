@@ -0,0 +1,182 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import study.querydsl.datasource.ReadWriteRoutingDataSource;
+import study.querydsl.dto.CacheStats;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//search 결과를 정규화된 검색 조건 단위로 캐시한다. (LRU + TTL, 엔트리 수와 전체 row 수 제한)
+//member/team 테이블에 쓰기가 일어나면 전체를 무효화한다.
+//쓰기 트랜잭션 안에서는 아직 flush 되지 않은 변경을 놓칠 수 있으므로 캐시를 거치지 않는다.
+//무효화 직후 replica에서 읽은 결과는 복제 지연으로 쓰기 이전 값일 수 있으므로
+//datasource.replica.max-lag-ms 동안은 캐시에 넣지 않는다 (primary에서 읽은 결과는 넣는다).
+@Component
+public class MemberSearchResultCache {
+
+    private static final Object TX_INVALIDATION_KEY = new Object();
+
+    private final int maxEntries;
+    private final long maxRows;
+    private final long ttlNanos;
+    private final boolean enabled;
+    private final long replicaLagNanos;
+
+    private final LinkedHashMap<MemberSearchCondition, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRows;
+
+    //조회 도중 무효화가 일어나면 그 결과는 캐시에 넣지 않는다
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long invalidatedAtNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemberSearchResultCache(@Value("${member.search-cache.max-entries:1000}") int maxEntries,
+                                   @Value("${member.search-cache.max-rows:100000}") long maxRows,
+                                   @Value("${member.search-cache.ttl-seconds:60}") long ttlSeconds,
+                                   @Value("${member.search-cache.enabled:true}") boolean enabled,
+                                   @Value("${datasource.replica.max-lag-ms:1000}") long replicaMaxLagMillis) {
+        this.maxEntries = maxEntries;
+        this.maxRows = maxRows;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.enabled = enabled;
+        this.replicaLagNanos = TimeUnit.MILLISECONDS.toNanos(replicaMaxLagMillis);
+        this.invalidatedAtNanos = System.nanoTime() - replicaLagNanos;
+    }
+
+    //반환되는 List는 수정할 수 없다. 안의 MemberTeamDto도 공유되므로 수정하지 않는다.
+    public List<MemberTeamDto> get(MemberSearchCondition cond, Supplier<List<MemberTeamDto>> loader) {
+        if (!enabled || inWriteTransaction()) {
+            return loader.get();
+        }
+        MemberSearchCondition key = normalize(cond);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.rows;
+            }
+            if (entry != null) {
+                remove(key);
+            }
+        }
+        misses.increment();
+
+        long loadGeneration = generation.get();
+        long replicaReads = ReadWriteRoutingDataSource.replicaReadsOnCurrentThread();
+        List<MemberTeamDto> rows = Collections.unmodifiableList(loader.get());
+        if (!readFromReplica(replicaReads) || !withinReplicaLag()) {
+            put(key, rows, loadGeneration);
+        }
+        return rows;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidatedAtNanos = System.nanoTime();
+        synchronized (this) {
+            entries.clear();
+            cachedRows = 0;
+        }
+    }
+
+    //쓰기가 일어난 시점에 한 번, 커밋(또는 롤백) 후에 한 번 더 무효화한다.
+    //커밋 전에 다른 스레드가 이전 데이터를 다시 캐시에 올릴 수 있기 때문이다.
+    public void invalidateAfterWrite() {
+        invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(TX_INVALIDATION_KEY)) {
+            TransactionSynchronizationManager.bindResource(TX_INVALIDATION_KEY, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TX_INVALIDATION_KEY);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats("memberSearchResult", hits.sum(), misses.sum(), entries.size());
+    }
+
+    private synchronized void put(MemberSearchCondition key, List<MemberTeamDto> rows, long loadGeneration) {
+        if (loadGeneration != generation.get() || rows.size() > maxRows) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(rows, System.nanoTime() + ttlNanos));
+        cachedRows += rows.size();
+
+        Iterator<Map.Entry<MemberSearchCondition, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || cachedRows > maxRows) {
+            cachedRows -= eldest.next().getValue().rows.size();
+            eldest.remove();
+        }
+    }
+
+    private void remove(MemberSearchCondition key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            cachedRows -= removed.rows.size();
+        }
+    }
+
+    //loader가 현재(바깥) 트랜잭션의 replica 커넥션을 썼거나, 스스로 트랜잭션을 열어 replica 커넥션을 얻은 경우
+    private boolean readFromReplica(long replicaReadsBefore) {
+        return ReadWriteRoutingDataSource.isCurrentTransactionOnReplica()
+                || ReadWriteRoutingDataSource.replicaReadsOnCurrentThread() != replicaReadsBefore;
+    }
+
+    private boolean withinReplicaLag() {
+        return System.nanoTime() - invalidatedAtNanos < replicaLagNanos;
+    }
+
+    private boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    //공백/빈 문자열은 조건이 없는 것과 같으므로(hasText) 같은 키로 모은다.
+    //값은 trim 하지 않는다. 쿼리는 원래 값으로 실행되므로 " member1"과 "member1"은 결과가 다르다
+    private MemberSearchCondition normalize(MemberSearchCondition cond) {
+        MemberSearchCondition key = new MemberSearchCondition();
+        key.setUsername(textOrNull(cond.getUsername()));
+        key.setUsernameStartsWith(textOrNull(cond.getUsernameStartsWith()));
+        key.setUsernameContains(textOrNull(cond.getUsernameContains()));
+        key.setTeamName(textOrNull(cond.getTeamName()));
+        key.setAgeGoe(cond.getAgeGoe());
+        key.setAgeLoe(cond.getAgeLoe());
+        return key;
+    }
+
+    private String textOrNull(String value) {
+        return StringUtils.hasText(value) ? value : null;
+    }
+
+    private static class Entry {
+        private final List<MemberTeamDto> rows;
+        private final long expiresAt;
+
+        private Entry(List<MemberTeamDto> rows, long expiresAt) {
+            this.rows = rows;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package study.querydsl.repository;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.MemberBulkChangedEvent;
+import study.querydsl.event.MemberChangedEvent;
+import study.querydsl.event.MemberState;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+
+//usernameContains("%x%") 조건을 trigram 인덱스로 member id 후보로 바꾼다.
+//B-tree 인덱스는 앞이 %인 LIKE에 쓸 수 없으므로 DB에서는 항상 table scan이 된다.
+//갱신과 재구성 방식은 MemberAgeIndex와 같다 (락 밖에서 새로 만들고, 그동안의 변경을 모았다가 바꿀 때 다시 반영).
+@Component
+public class MemberUsernameIndex {
+
+    private final TrigramIndex index = new TrigramIndex();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ThreadPoolTaskExecutor rebuilder = new ThreadPoolTaskExecutor();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final AtomicLong bulkChanges = new AtomicLong();
+    private final Object txInvalidationKey = new Object();
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyNewTx;
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final int fetchSize;
+    private volatile boolean ready;
+    //재구성 중에만 null이 아니다. write lock을 잡고 읽고 쓴다
+    private List<MemberChangedEvent> pendingEvents;
+
+    public MemberUsernameIndex(EntityManager em,
+                               PlatformTransactionManager transactionManager,
+                               MemberWriteStatementInspector writeStatementInspector,
+                               @Value("${member.username-index.enabled:true}") boolean enabled,
+                               @Value("${member.username-index.max-candidates:1000}") int maxCandidates,
+                               @Value("${member.username-index.fetch-size:1000}") int fetchSize) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.readOnlyNewTx = new TransactionTemplate(transactionManager);
+        this.readOnlyNewTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyNewTx.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+        this.fetchSize = fetchSize;
+        rebuilder.setCorePoolSize(1);
+        rebuilder.setMaxPoolSize(1);
+        rebuilder.setThreadNamePrefix("member-username-index-");
+        rebuilder.initialize();
+        writeStatementInspector.addBulkWriteListener(sql -> {
+            if (MemberWriteStatementInspector.writesColumn(sql, "username")) {
+                invalidateAfterWrite();
+            }
+        });
+    }
+
+    //usernameContains에 맞을 수 있는 member id (오름차순). 인덱스로 답할 수 없으면 null
+    //(비활성, 검색어 3글자 미만, 쓰기 트랜잭션 안, 준비 전, 후보가 maxCandidates 초과)
+    public long[] candidates(MemberSearchCondition cond) {
+        String query = cond.getUsernameContains();
+        if (!enabled || !hasText(query) || query.length() < TrigramIndex.GRAM_LENGTH) {
+            return null;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        if (!ready || !lock.readLock().tryLock()) {
+            return null;
+        }
+        try {
+            return ready ? index.candidates(query, maxCandidates) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        MemberState before = event.getBefore();
+        MemberState after = event.getAfter();
+        if (before != null && after != null && Objects.equals(before.getUsername(), after.getUsername())) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            if (ready) {
+                apply(index, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(TrigramIndex target, MemberChangedEvent event) {
+        long id = event.getMemberId();
+        if (event.getBefore() != null) {
+            target.remove(id, event.getBefore().getUsername());
+        } else if (event.isBeforeUnknown()) {
+            target.removeById(id);
+        }
+        if (event.getAfter() != null) {
+            target.add(id, event.getAfter().getUsername());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberBulkChanged(MemberBulkChangedEvent event) {
+        if (event.getOperation().changesUsername()) {
+            invalidate();
+        }
+    }
+
+    private void invalidateAfterWrite() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        if (!TransactionSynchronizationManager.hasResource(txInvalidationKey)) {
+            TransactionSynchronizationManager.bindResource(txInvalidationKey, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(txInvalidationKey);
+                    invalidate();
+                }
+            });
+        }
+    }
+
+    private void invalidate() {
+        bulkChanges.incrementAndGet();
+        ready = false;
+        requestRebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${member.username-index.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    private void requestRebuild() {
+        if (enabled && rebuildRequested.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildRequested.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    private void rebuild() {
+        rebuildLock.lock();
+        try {
+            long bulkChangesBefore = bulkChanges.get();
+            lock.writeLock().lock();
+            try {
+                pendingEvents = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            TrigramIndex rebuilt = null;
+            try {
+                rebuilt = readOnlyNewTx.execute(status -> load());
+            } finally {
+                swap(rebuilt, bulkChangesBefore);
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void swap(TrigramIndex rebuilt, long bulkChangesBefore) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilt != null) {
+                for (MemberChangedEvent event : pendingEvents) {
+                    apply(rebuilt, event);
+                }
+                index.replaceWith(rebuilt);
+                ready = bulkChanges.get() == bulkChangesBefore;
+            }
+            pendingEvents = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdown();
+    }
+
+    private TrigramIndex load() {
+        TrigramIndex loaded = new TrigramIndex();
+        try (CloseableIterator<Tuple> rows = queryFactory
+                .select(member.id, member.username)
+                .from(member)
+                .orderBy(member.id.asc())
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .iterate()) {
+            while (rows.hasNext()) {
+                Tuple row = rows.next();
+                loaded.add(row.get(member.id), row.get(member.username));
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,70 @@
+package study.querydsl.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//Hibernate가 실행하는 모든 SQL을 보고 member/team 테이블 쓰기를 감지한다.
+//엔티티 저장뿐 아니라 queryFactory.update(member)... 같은 벌크 연산도 여기서 잡힌다.
+//member 테이블의 벌크/native 쓰기는 JVM 내 인덱스(MemberAgeIndex, MemberUsernameIndex)에도 알린다.
+//엔티티 한 건 단위 쓰기는 MemberChangedEvent로 증분 반영되므로 알리지 않는다.
+@Component
+public class MemberWriteStatementInspector implements StatementInspector {
+
+    private static final Pattern MEMBER_WRITE = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)?(?:insert\\s+into|update|delete\\s+from|delete)\\s+(?:member|team)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern MEMBER_TABLE_WRITE = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)?(?:insert\\s+into|update|delete\\s+from|delete)\\s+member\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    //Hibernate가 엔티티 flush로 만드는 SQL (insert ... values, update/delete ... where member_id=?)
+    private static final Pattern MEMBER_ROW_WRITE = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)?(?:insert\\s+into\\s+member\\s*\\([^)]*\\)\\s*values\\b"
+                    + "|(?:update\\s+member\\s+set|delete\\s+from\\s+member)\\b.*\\bwhere\\s+member_id\\s*=\\s*\\?\\s*$)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern UPDATE_SET = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)?update\\s+member\\s+(?:\\w+\\s+)?set\\s+(.*?)(?:\\swhere\\s.*)?$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final MemberSearchResultCache searchResultCache;
+    private final List<Consumer<String>> bulkWriteListeners = new CopyOnWriteArrayList<>();
+
+    public MemberWriteStatementInspector(MemberSearchResultCache searchResultCache) {
+        this.searchResultCache = searchResultCache;
+    }
+
+    //인덱스는 EntityManager에 의존하므로 생성자 주입 대신 인덱스가 스스로 등록한다 (EntityManagerFactory와 순환 참조)
+    public void addBulkWriteListener(Consumer<String> listener) {
+        bulkWriteListeners.add(listener);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (MEMBER_WRITE.matcher(sql).find()) {
+            searchResultCache.invalidateAfterWrite();
+            if (MEMBER_TABLE_WRITE.matcher(sql).find() && !MEMBER_ROW_WRITE.matcher(sql).find()) {
+                bulkWriteListeners.forEach(listener -> listener.accept(sql));
+            }
+        }
+        return sql;
+    }
+
+    //member 테이블 쓰기 SQL이 column을 바꿀 수 있는지. insert/delete는 모든 컬럼을 바꾼다
+    static boolean writesColumn(String sql, String column) {
+        Matcher update = UPDATE_SET.matcher(sql);
+        if (!update.find()) {
+            return true;
+        }
+        return Pattern.compile("(?:^|[\\s,.])" + Pattern.quote(column) + "\\s*=", Pattern.CASE_INSENSITIVE)
+                .matcher(update.group(1))
+                .find();
+    }
+}
@@ -0,0 +1,147 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//username의 연속된 3글자(trigram)마다 그 글자를 포함하는 member id 목록(정렬된 long[])을 둔다.
+//"%xyz%" 조건은 검색어의 trigram 목록을 모두 교집합하면 후보가 나온다.
+//후보는 실제 결과의 상위 집합이므로 호출하는 쪽에서 LIKE 조건으로 한 번 더 거른다.
+//대소문자는 DB의 LIKE와 같게 구분한다. 동기화는 하지 않는다 (MemberUsernameIndex에서 락을 잡는다)
+class TrigramIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    int gramCount() {
+        return postings.size();
+    }
+
+    //재구성한 인덱스로 바꾼다. other는 이후 쓰지 않는다
+    void replaceWith(TrigramIndex other) {
+        postings.clear();
+        postings.putAll(other.postings);
+    }
+
+    void add(long id, String username) {
+        for (long gram : grams(username)) {
+            postings.computeIfAbsent(gram, key -> new Postings()).insert(id);
+        }
+    }
+
+    void remove(long id, String username) {
+        for (long gram : grams(username)) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    //이전 username을 모르는 경우에만 쓴다. 전체 목록을 훑는다
+    void removeById(long id) {
+        postings.values().removeIf(list -> list.remove(id) && list.size == 0);
+    }
+
+    //query를 포함할 수 있는 member id (오름차순). 검색어가 짧거나 후보가 maxCandidates를 넘으면 null
+    long[] candidates(String query, int maxCandidates) {
+        if (query == null || query.length() < GRAM_LENGTH) {
+            return null;
+        }
+        List<Postings> lists = new ArrayList<>();
+        for (long gram : grams(query)) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        //가장 짧은 목록부터 교집합해야 중간 결과가 작다
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        long[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        int size = result.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            size = intersect(result, size, lists.get(i));
+        }
+        if (size > maxCandidates) {
+            return null;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    //result[0, size) 중 other에도 있는 값만 앞으로 모은다
+    private static int intersect(long[] result, int size, Postings other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size && j < other.size; ) {
+            long a = result[i];
+            long b = other.ids[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                result[kept++] = a;
+                i++;
+                j++;
+            }
+        }
+        return kept;
+    }
+
+    static Set<Long> grams(String value) {
+        Set<Long> grams = new HashSet<>();
+        if (value == null) {
+            return grams;
+        }
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    private static class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void insert(long id) {
+            //재구성은 id 순으로 들어오므로 대부분 뒤에 붙는다
+            if (size == 0 || ids[size - 1] < id) {
+                grow();
+                ids[size++] = id;
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -(pos + 1);
+            grow();
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        private void grow() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length << 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.service;
+
+import lombok.Getter;
+
+@Getter
+public enum MemberExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv;charset=UTF-8", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    MemberExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+}
@@ -0,0 +1,119 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mysema.commons.lang.CloseableIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+//검색 결과를 DB 커서에서 바로 응답 스트림으로 흘려보낸다.
+//한 번에 메모리에 올라가는 row는 JDBC fetch size 만큼이다.
+@Service
+public class MemberExportService {
+
+    private static final String CSV_HEADER = "memberId,username,age,teamId,teamName";
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTx;
+    private final MemberTeamJsonWriter jsonWriter;
+    private final int fetchSize;
+    private final int clearInterval;
+
+    public MemberExportService(MemberJpaRepository memberJpaRepository,
+                               EntityManager em,
+                               PlatformTransactionManager transactionManager,
+                               MemberTeamJsonWriter jsonWriter,
+                               @Value("${member.export.fetch-size:1000}") int fetchSize,
+                               @Value("${member.export.clear-interval:1000}") int clearInterval) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.em = em;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.jsonWriter = jsonWriter;
+        this.fetchSize = fetchSize;
+        this.clearInterval = clearInterval;
+    }
+
+    public void export(MemberSearchCondition cond, MemberExportFormat format, OutputStream out) {
+        readOnlyTx.executeWithoutResult(status -> {
+            try (CloseableIterator<MemberTeamDto> rows = memberJpaRepository.iterate(cond, fetchSize)) {
+                write(rows, format, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                //클라이언트가 끊긴 경우 트랜잭션을 롤백하고 커서를 닫는다.
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void write(CloseableIterator<MemberTeamDto> rows, MemberExportFormat format, Writer writer) throws IOException {
+        JsonGenerator json = null;
+        if (format == MemberExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        } else {
+            json = jsonWriter.createLineGenerator(writer);
+        }
+        long count = 0;
+        while (rows.hasNext()) {
+            MemberTeamDto row = rows.next();
+            if (json == null) {
+                writeCsv(row, writer);
+            } else {
+                jsonWriter.writeRow(json, row);
+                json.writeRaw('\n');
+            }
+            count++;
+            //첫 row는 바로 내보내고, 이후에는 clearInterval 마다 flush + 영속성 컨텍스트 정리
+            if (count == 1 || count % clearInterval == 0) {
+                flush(json, writer);
+                em.clear();
+            }
+        }
+        flush(json, writer);
+    }
+
+    //JsonGenerator는 자체 버퍼가 있으므로 먼저 비운다
+    private void flush(JsonGenerator json, Writer writer) throws IOException {
+        if (json != null) {
+            json.flush();
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(MemberTeamDto row, Writer writer) throws IOException {
+        writer.write(String.valueOf(row.getMemberId()));
+        writer.write(',');
+        writer.write(csv(row.getUsername()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getAge()));
+        writer.write(',');
+        writer.write(row.getTeamid() == null ? "" : String.valueOf(row.getTeamid()));
+        writer.write(',');
+        writer.write(csv(row.getTeamName()));
+        writer.write('\n');
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,86 @@
+package study.querydsl.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import study.querydsl.monitor.SqlExecutionContext;
+import study.querydsl.monitor.SqlMetricsTaskDecorator;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//조회 쿼리 전용 스레드 풀. 스레드 수를 커넥션 풀 크기에 맞춰서 동시에 실행되는 쿼리 수를 제한한다.
+//큐까지 가득 차면 TaskRejectedException으로 바로 거절한다 (요청 스레드를 붙잡고 기다리지 않는다).
+//Executor 빈으로 등록하면 스프링 부트 기본 applicationTaskExecutor가 빠지므로 내부에서만 사용한다.
+@Component
+public class MemberQueryExecutor {
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    public MemberQueryExecutor(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+                               @Value("${member.query-executor.reserved-connections:2}") int reservedConnections,
+                               @Value("${member.query-executor.queue-capacity:100}") int queueCapacity) {
+        int threads = Math.max(1, connectionPoolSize - reservedConnections);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("member-query-");
+        executor.setTaskDecorator(new SqlMetricsTaskDecorator());
+        executor.initialize();
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> query) throws TaskRejectedException {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    //timeoutMillis가 지나면 QueryTimeoutException으로 끝내고 작업 context를 cancel() 해서
+    //작업 스레드에서 실행 중인 statement를 취소한다. 결과만 버리고 쿼리를 계속 돌리면
+    //커넥션과 스레드를 그대로 붙잡고 있어서 버려진 작업만으로 풀이 가득 찰 수 있다.
+    //큐에서 기다리는 중에 시간이 지나면 실행하지 않는다.
+    public <T> CompletableFuture<T> submit(Supplier<T> query, long timeoutMillis) throws TaskRejectedException {
+        SqlExecutionContext taskContext = new SqlExecutionContext();
+        taskContext.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        CompletableFuture<T> future = submit(query, taskContext);
+        CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (future.completeExceptionally(new QueryTimeoutException("member query executor timeout exceeded"))) {
+                taskContext.cancel();
+            }
+        });
+        return future;
+    }
+
+    //taskContext를 작업 스레드에 push 해서 실행한다. 결과가 필요 없어지면 호출한 쪽에서
+    //future.cancel()로 아직 시작하지 않은 작업을 건너뛰게 하고 taskContext.cancel()로 실행 중인 statement를 취소한다.
+    public <T> CompletableFuture<T> submit(Supplier<T> query, SqlExecutionContext taskContext) throws TaskRejectedException {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            SqlExecutionContext.push(taskContext);
+            try {
+                future.complete(query.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                SqlExecutionContext.pop(taskContext);
+            }
+        });
+        return future;
+    }
+
+    //지금 제출하면 큐에서 기다리지 않고 바로 실행될 수 있는지
+    public boolean hasIdleThread() {
+        return executor.getActiveCount() < executor.getMaxPoolSize()
+                && executor.getThreadPoolExecutor().getQueue().isEmpty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,116 @@
+package study.querydsl.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.datasource.ReadWriteRoutingDataSource;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.monitor.ConnectionPoolRegistry;
+import study.querydsl.monitor.SqlExecutionContext;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//페이징 검색의 count 쿼리를 MemberQueryExecutor에서 content 쿼리와 동시에 실행한다.
+//content를 보고 PageableExecutionUtils가 count를 쓰지 않으면(첫 페이지가 한 페이지보다 적거나 마지막 페이지)
+//실행 중인 count를 취소한다.
+//두 쿼리는 서로 다른 커넥션을 사용하므로 아래 경우에는 순차 실행으로 돌아간다.
+// - 호출한 쪽이 트랜잭션 안에 있는 경우 (다른 커넥션에서는 커밋 전 데이터가 보이지 않는다)
+// - 쿼리 스레드나 커넥션 풀에 여유가 없는 경우, 큐가 가득 차서 거절된 경우
+@Service
+public class MemberSearchService {
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberQueryExecutor memberQueryExecutor;
+    private final DataSource dataSource;
+
+    public MemberSearchService(MemberJpaRepository memberJpaRepository,
+                               MemberQueryExecutor memberQueryExecutor,
+                               DataSource dataSource) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.memberQueryExecutor = memberQueryExecutor;
+        this.dataSource = dataSource;
+    }
+
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition cond, Pageable pageable) {
+        if (!canRunInParallel()) {
+            return memberJpaRepository.search(cond, pageable);
+        }
+
+        SqlExecutionContext countContext = new SqlExecutionContext();
+        CompletableFuture<Long> count;
+        try {
+            count = memberQueryExecutor.submit(() -> memberJpaRepository.searchCount(cond), countContext);
+        } catch (TaskRejectedException e) {
+            return memberJpaRepository.search(cond, pageable);
+        }
+
+        AtomicBoolean countUsed = new AtomicBoolean();
+        try {
+            List<MemberTeamDto> content = memberJpaRepository.searchContent(cond, pageable);
+            return PageableExecutionUtils.getPage(content, pageable, () -> {
+                countUsed.set(true);
+                return join(count);
+            });
+        } finally {
+            if (!countUsed.get()) {
+                cancel(count, countContext);
+            }
+        }
+    }
+
+    //아직 시작하지 않았으면 건너뛰고, 실행 중이면 statement를 취소해서 스레드와 커넥션을 바로 돌려준다
+    private void cancel(CompletableFuture<Long> count, SqlExecutionContext countContext) {
+        if (count.cancel(false)) {
+            countContext.cancel();
+        }
+    }
+
+    private boolean canRunInParallel() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        return memberQueryExecutor.hasIdleThread() && hasIdleConnection();
+    }
+
+    boolean hasIdleConnection() {
+        HikariPoolMXBean pool = readOnlyPool();
+        return pool == null || pool.getIdleConnections() > 0;
+    }
+
+    //searchContent/searchCount(readOnly)가 실제로 사용할 풀. replica를 켜면 라우팅 결과에 따라 replica 또는 primary다
+    private HikariPoolMXBean readOnlyPool() {
+        DataSource target = dataSource;
+        if (dataSource instanceof LazyConnectionDataSourceProxy
+                && ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource() instanceof ReadWriteRoutingDataSource) {
+            ReadWriteRoutingDataSource routing =
+                    (ReadWriteRoutingDataSource) ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+            target = routing.target(routing.readOnlyRoute());
+        }
+        //풀 상태를 알 수 없으면 스레드 여유만 보고 판단한다
+        HikariDataSource hikari = ConnectionPoolRegistry.unwrapHikari(target);
+        return hikari == null ? null : hikari.getHikariPoolMXBean();
+    }
+
+    private long join(CompletableFuture<Long> count) {
+        try {
+            return count.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
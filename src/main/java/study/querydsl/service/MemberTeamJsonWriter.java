@@ -0,0 +1,76 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.List;
+
+//MemberTeamDto 전용 JSON 직렬화.
+//ObjectMapper의 BeanSerializer(리플렉션 getter 호출 + 필드명 인코딩)를 거치지 않고
+//미리 인코딩해 둔 필드명으로 JsonGenerator에 바로 쓴다. 결과는 ObjectMapper 기본 설정과 같다.
+@Component
+public class MemberTeamJsonWriter {
+
+    private static final SerializedString MEMBER_ID = new SerializedString("memberId");
+    private static final SerializedString USERNAME = new SerializedString("username");
+    private static final SerializedString AGE = new SerializedString("age");
+    private static final SerializedString TEAM_ID = new SerializedString("teamid");
+    private static final SerializedString TEAM_NAME = new SerializedString("teamName");
+
+    private final JsonFactory jsonFactory;
+
+    public MemberTeamJsonWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    //[{...},{...}] 를 out에 바로 쓴다. out은 닫지 않는다
+    public void writeArray(List<MemberTeamDto> rows, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartArray();
+            for (MemberTeamDto row : rows) {
+                writeRow(generator, row);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    //한 줄에 한 row(NDJSON)를 쓰기 위한 generator. row 사이 구분자는 호출한 쪽에서 쓴다
+    public JsonGenerator createLineGenerator(Writer writer) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(writer)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    public void writeRow(JsonGenerator generator, MemberTeamDto row) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(MEMBER_ID);
+        writeNumber(generator, row.getMemberId());
+        generator.writeFieldName(USERNAME);
+        generator.writeString(row.getUsername());
+        generator.writeFieldName(AGE);
+        generator.writeNumber(row.getAge());
+        generator.writeFieldName(TEAM_ID);
+        writeNumber(generator, row.getTeamid());
+        generator.writeFieldName(TEAM_NAME);
+        generator.writeString(row.getTeamName());
+        generator.writeEndObject();
+    }
+
+    private void writeNumber(JsonGenerator generator, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package study.querydsl.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+//팀별 나이 집계(count, sum, min, max)를 증분으로 유지한다.
+//min/max는 삭제 시에도 맞출 수 있도록 나이별 인원수(TreeMap)로 들고 있다.
+class TeamAgeStatsTable {
+
+    private volatile ConcurrentHashMap<Long, TeamAgeStats> stats = new ConcurrentHashMap<>();
+
+    void add(Long teamId, int age) {
+        if (teamId != null) {
+            stats.computeIfAbsent(teamId, id -> new TeamAgeStats()).add(age, 1);
+        }
+    }
+
+    void remove(Long teamId, int age) {
+        if (teamId != null) {
+            TeamAgeStats teamStats = stats.get(teamId);
+            if (teamStats != null) {
+                teamStats.add(age, -1);
+            }
+        }
+    }
+
+    //재집계 결과로 통째로 교체한다. key: teamId, value: (age -> 인원수)
+    void replace(Map<Long, Map<Integer, Long>> ageCountsByTeam) {
+        ConcurrentHashMap<Long, TeamAgeStats> rebuilt = new ConcurrentHashMap<>();
+        ageCountsByTeam.forEach((teamId, ageCounts) -> {
+            TeamAgeStats teamStats = new TeamAgeStats();
+            ageCounts.forEach(teamStats::add);
+            rebuilt.put(teamId, teamStats);
+        });
+        stats = rebuilt;
+    }
+
+    Map<Long, Snapshot> snapshot() {
+        Map<Long, Snapshot> result = new HashMap<>();
+        stats.forEach((teamId, teamStats) -> {
+            Snapshot snapshot = teamStats.snapshot();
+            if (snapshot.count > 0) {
+                result.put(teamId, snapshot);
+            }
+        });
+        return result;
+    }
+
+    static class Snapshot {
+        final long count;
+        final long sum;
+        final int min;
+        final int max;
+
+        Snapshot(long count, long sum, int min, int max) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private static class TeamAgeStats {
+        private final TreeMap<Integer, Long> ageCounts = new TreeMap<>();
+        private long count;
+        private long sum;
+
+        synchronized void add(int age, long delta) {
+            long next = ageCounts.getOrDefault(age, 0L) + delta;
+            if (next <= 0) {
+                //음수는 재집계 전 이벤트 순서가 어긋난 경우이므로 0으로 맞춘다
+                Long removed = ageCounts.remove(age);
+                long applied = removed == null ? 0 : -removed;
+                count += applied;
+                sum += applied * age;
+                return;
+            }
+            ageCounts.put(age, next);
+            count += delta;
+            sum += delta * age;
+        }
+
+        synchronized Snapshot snapshot() {
+            if (ageCounts.isEmpty()) {
+                return new Snapshot(0, 0, 0, 0);
+            }
+            return new Snapshot(count, sum, ageCounts.firstKey(), ageCounts.lastKey());
+        }
+    }
+}
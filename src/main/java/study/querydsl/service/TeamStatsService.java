@@ -0,0 +1,204 @@
+package study.querydsl.service;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.event.MemberBulkChangedEvent;
+import study.querydsl.event.MemberChangedEvent;
+import study.querydsl.event.MemberState;
+import study.querydsl.event.TeamChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//팀별 나이 통계(QuerydslBasicTest.group, aggregation)를 매번 전체 집계하지 않고
+//커밋된 Member 변경 이벤트로 증분 갱신한다. 벌크 연산이나 놓친 이벤트는 주기적인 재집계로 맞춘다.
+//팀 이름도 Team 변경 이벤트로 메모리에 들고 있어서 조회 요청은 DB에 가지 않는다.
+//JPQL/native로 바꾼 팀 이름은 다음 재집계에서 맞춰진다.
+@Service
+public class TeamStatsService {
+
+    //재집계 중에 이벤트가 계속 들어오면 이 횟수까지 다시 집계한다
+    private static final int MAX_RECONCILE_ATTEMPTS = 3;
+
+    private final TeamAgeStatsTable table = new TeamAgeStatsTable();
+    private final Object reconcileLock = new Object();
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyNewTx;
+    private volatile Map<Long, String> teamNames = new ConcurrentHashMap<>();
+    private volatile boolean initialized;
+    //재집계 중에만 null이 아니다. this로 동기화해서 읽고 쓴다
+    private List<Object> pendingEvents;
+
+    public TeamStatsService(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.queryFactory = new JPAQueryFactory(em);
+        //커밋 이후(after commit) 단계에서도 호출되므로 항상 새 트랜잭션으로 읽는다
+        this.readOnlyNewTx = new TransactionTemplate(transactionManager);
+        this.readOnlyNewTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyNewTx.setReadOnly(true);
+    }
+
+    //팀 이름별로 합친다 (group by team.name 과 같은 의미)
+    public List<TeamStatsDto> stats() {
+        if (!initialized) {
+            reconcile();
+        }
+        Map<Long, TeamAgeStatsTable.Snapshot> snapshot = table.snapshot();
+        Map<Long, String> names = teamNames;
+
+        Map<String, long[]> merged = new TreeMap<>();
+        snapshot.forEach((teamId, stats) -> {
+            String teamName = names.get(teamId);
+            if (teamName == null) {
+                return;
+            }
+            long[] acc = merged.computeIfAbsent(teamName, name -> new long[]{0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE});
+            acc[0] += stats.count;
+            acc[1] += stats.sum;
+            acc[2] = Math.max(acc[2], stats.max);
+            acc[3] = Math.min(acc[3], stats.min);
+        });
+
+        List<TeamStatsDto> result = new ArrayList<>();
+        merged.forEach((teamName, acc) -> result.add(new TeamStatsDto(teamName, acc[0], acc[1], (int) acc[2], (int) acc[3])));
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (event.isBeforeUnknown()) {
+            reconcile();
+            return;
+        }
+        synchronized (this) {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            apply(event);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChanged(TeamChangedEvent event) {
+        synchronized (this) {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            apply(event);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberBulkChanged(MemberBulkChangedEvent event) {
+        reconcile();
+    }
+
+    private void apply(Object event) {
+        if (event instanceof TeamChangedEvent) {
+            TeamChangedEvent teamEvent = (TeamChangedEvent) event;
+            if (teamEvent.getType() == TeamChangedEvent.Type.DELETE || teamEvent.getName() == null) {
+                teamNames.remove(teamEvent.getTeamId());
+            } else {
+                teamNames.put(teamEvent.getTeamId(), teamEvent.getName());
+            }
+            return;
+        }
+        MemberChangedEvent memberEvent = (MemberChangedEvent) event;
+        MemberState before = memberEvent.getBefore();
+        MemberState after = memberEvent.getAfter();
+        if (before != null) {
+            table.remove(before.getTeamId(), before.getAge());
+        }
+        if (after != null) {
+            table.add(after.getTeamId(), after.getAge());
+        }
+    }
+
+    //(team, age)별 인원수와 팀 이름을 다시 읽어서 전체를 맞춘다.
+    //집계 쿼리와 교체 사이에 커밋된 이벤트는 집계에 들어갔는지 알 수 없으므로
+    //그동안 들어온 이벤트를 모아두고, 이벤트가 없었던 집계만 그대로 교체한다.
+    //계속 이벤트가 들어오면 이미 초기화된 표는 증분 갱신한 값을 그대로 두고 다음 재집계에 맡긴다.
+    //처음 만드는 경우에는 마지막 집계로 교체하고 모아둔 이벤트를 다시 반영한다.
+    @Scheduled(fixedDelayString = "${team.stats.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            for (int attempt = 1; attempt <= MAX_RECONCILE_ATTEMPTS; attempt++) {
+                synchronized (this) {
+                    pendingEvents = new ArrayList<>();
+                }
+                Map<Long, Map<Integer, Long>> ageCountsByTeam;
+                Map<Long, String> names;
+                try {
+                    ageCountsByTeam = readOnlyNewTx.execute(status -> loadAgeCounts());
+                    names = readOnlyNewTx.execute(status -> loadTeamNames());
+                } catch (RuntimeException e) {
+                    synchronized (this) {
+                        pendingEvents = null;
+                    }
+                    throw e;
+                }
+                if (replace(ageCountsByTeam, names, attempt == MAX_RECONCILE_ATTEMPTS)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    //교체했거나 더 시도하지 않을 때 true
+    private synchronized boolean replace(Map<Long, Map<Integer, Long>> ageCountsByTeam, Map<Long, String> names,
+                                         boolean lastAttempt) {
+        List<Object> pending = pendingEvents;
+        pendingEvents = null;
+        if (pending.isEmpty() || (lastAttempt && !initialized)) {
+            table.replace(ageCountsByTeam);
+            teamNames = names;
+            pending.forEach(this::apply);
+            initialized = true;
+            return true;
+        }
+        return lastAttempt;
+    }
+
+    private Map<Long, Map<Integer, Long>> loadAgeCounts() {
+        List<Tuple> rows = queryFactory
+                .select(team.id, member.age, member.count())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.id, member.age)
+                .fetch();
+        Map<Long, Map<Integer, Long>> ageCountsByTeam = new HashMap<>();
+        for (Tuple row : rows) {
+            ageCountsByTeam.computeIfAbsent(row.get(team.id), id -> new HashMap<>())
+                    .put(row.get(member.age), row.get(member.count()));
+        }
+        return ageCountsByTeam;
+    }
+
+    private Map<Long, String> loadTeamNames() {
+        List<Tuple> rows = queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .fetch();
+        Map<Long, String> names = new ConcurrentHashMap<>();
+        for (Tuple row : rows) {
+            if (row.get(team.name) != null) {
+                names.put(row.get(team.id), row.get(team.name));
+            }
+        }
+        return names;
+    }
+}
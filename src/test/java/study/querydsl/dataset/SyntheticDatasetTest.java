@@ -0,0 +1,82 @@
+package study.querydsl.dataset;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class SyntheticDatasetTest {
+
+    @Test
+    public void sameSeedSameData() {
+        SyntheticDataset first = new SyntheticDataset(spec(42));
+        SyntheticDataset second = new SyntheticDataset(spec(42));
+        SyntheticDataset other = new SyntheticDataset(spec(7));
+
+        boolean differs = false;
+        //회원 i는 seed와 i로만 정해지므로 만드는 순서와 상관없다
+        for (int i = first.memberCount() - 1; i >= 0; i--) {
+            SyntheticMember a = first.member(i);
+            SyntheticMember b = second.member(i);
+            Assertions.assertThat(a.getUsername()).isEqualTo(b.getUsername());
+            Assertions.assertThat(a.getAge()).isEqualTo(b.getAge());
+            Assertions.assertThat(a.getTeamRank()).isEqualTo(b.getTeamRank());
+            differs |= a.getAge() != other.member(i).getAge();
+        }
+        Assertions.assertThat(differs).isTrue();
+    }
+
+    @Test
+    public void skewedDistribution() {
+        SyntheticDatasetSpec spec = spec(42);
+        SyntheticDataset dataset = new SyntheticDataset(spec);
+
+        int[] teamSizes = new int[dataset.teamCount()];
+        int[] ages = new int[100];
+        int noTeam = 0;
+        int longUsernames = 0;
+        Map<String, Integer> usernames = new HashMap<>();
+        for (int i = 0; i < dataset.memberCount(); i++) {
+            SyntheticMember member = dataset.member(i);
+            if (member.hasTeam()) {
+                teamSizes[member.getTeamRank()]++;
+            } else {
+                noTeam++;
+            }
+            ages[member.getAge()]++;
+            usernames.merge(member.getUsername(), 1, Integer::sum);
+            if (member.getUsername().length() == spec.getLongUsernameLength()) {
+                longUsernames++;
+            }
+        }
+
+        //가장 큰 팀이 평균 팀 크기의 몇 배가 된다
+        double averageTeamSize = (double) (dataset.memberCount() - noTeam) / dataset.teamCount();
+        Assertions.assertThat(teamSizes[0]).isGreaterThan((int) (averageTeamSize * 5));
+        Assertions.assertThat(teamSizes[0]).isGreaterThan(teamSizes[dataset.teamCount() - 1] * 10);
+        Assertions.assertThat(teamSizes[0]).isCloseTo((int) dataset.expectedTeamSize(0), Assertions.withinPercentage(15));
+
+        Assertions.assertThat(noTeam).isBetween(100, 300); //5%
+        Assertions.assertThat(longUsernames).isBetween(20, 80); //1%
+        Assertions.assertThat(usernames.get("kim")).isGreaterThan(100);
+
+        //20대 후반이 70대보다 훨씬 많다
+        Assertions.assertThat(ages[28]).isGreaterThan(ages[75] * 10);
+    }
+
+    @Test
+    public void scaled() {
+        Assertions.assertThat(SyntheticDatasetSpec.scaled(0.5).getMembers()).isEqualTo(5_000);
+        Assertions.assertThat(SyntheticDatasetSpec.scaled(10).getMembers()).isEqualTo(100_000);
+        Assertions.assertThat(SyntheticDatasetSpec.scaled(10).getTeamCount()).isEqualTo(2_000);
+    }
+
+    private SyntheticDatasetSpec spec(long seed) {
+        SyntheticDatasetSpec spec = new SyntheticDatasetSpec();
+        spec.setSeed(seed);
+        spec.setMembers(5000);
+        spec.setTeams(50);
+        return spec;
+    }
+}
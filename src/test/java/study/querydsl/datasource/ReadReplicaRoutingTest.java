@@ -0,0 +1,95 @@
+package study.querydsl.datasource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.monitor.ConnectionPoolRegistry;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//datasource.replica.enabled=true 로 띄워서 JpaTransactionManager + Hibernate 에서도
+//readOnly 트랜잭션(MemberJpaRepository 조회 메서드)이 replica로 가는지 확인한다.
+//ddl-auto는 primary에만 적용되므로 primary 스키마를 replica에 복사하고, 두 DB에 서로 다른 회원을 넣는다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTest.PRIMARY_URL,
+        "datasource.replica.enabled=true",
+        "datasource.replica.url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "member.search-cache.enabled=false"})
+class ReadReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ConnectionPoolRegistry connectionPoolRegistry;
+
+    @BeforeEach
+    public void copySchemaToReplica() throws SQLException {
+        try (Connection primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement read = primary.createStatement();
+             Statement write = replica.createStatement();
+             ResultSet script = read.executeQuery("SCRIPT NODATA")) {
+            write.execute("DROP ALL OBJECTS");
+            while (script.next()) {
+                write.execute(script.getString(1));
+            }
+            write.execute("insert into member (member_id, age, username) values (1000, 20, 'replicaMember')");
+        }
+    }
+
+    @Test
+    public void readOnlyRepositoryCallsGoToReplica() {
+        ReadWriteRoutingDataSource routing =
+                (ReadWriteRoutingDataSource) ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+
+        //쓰기 트랜잭션은 primary에만 들어간다
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> em.persist(new Member("primaryMember", 10)));
+        long replicaConnections = routing.getReplicaConnections();
+
+        Assertions.assertThat(memberJpaRepository.findByUsername("replicaMember"))
+                .extracting("username").containsExactly("replicaMember");
+        Assertions.assertThat(memberJpaRepository.findByUsername("primaryMember")).isEmpty();
+
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setUsername("replicaMember");
+        Assertions.assertThat(memberJpaRepository.search(cond))
+                .extracting("username").containsExactly("replicaMember");
+
+        Assertions.assertThat(routing.getReplicaConnections() - replicaConnections).isGreaterThanOrEqualTo(3);
+        Assertions.assertThat(routing.getFallbacks()).isZero();
+
+        //두 풀의 측정 값은 따로 쌓인다
+        Assertions.assertThat(connectionPoolRegistry.pools())
+                .extracting(ConnectionPoolRegistry.Pool::getName)
+                .containsExactly("primary", "replica");
+        Assertions.assertThat(connectionPoolRegistry.pools().get(1).getMetrics().snapshot().getAcquires())
+                .isGreaterThanOrEqualTo(3);
+    }
+}
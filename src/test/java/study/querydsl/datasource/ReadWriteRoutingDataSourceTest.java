@@ -0,0 +1,138 @@
+package study.querydsl.datasource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.monitor.SqlExecutionContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+//두 개의 H2 메모리 DB를 primary/replica로 두고 어느 쪽에서 읽었는지 확인한다
+class ReadWriteRoutingDataSourceTest {
+
+    @Test
+    public void readOnlyTransactionGoesToReplica() {
+        Fixture fixture = new Fixture("route_basic", replica("route_basic"), true);
+
+        Assertions.assertThat(fixture.readOnly()).isEqualTo("replica");
+        Assertions.assertThat(fixture.readWrite()).isEqualTo("primary");
+        //트랜잭션 밖은 primary
+        Assertions.assertThat(fixture.jdbcTemplate.queryForObject("select name from route", String.class)).isEqualTo("primary");
+        Assertions.assertThat(fixture.routing.getReplicaConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void fallbackToPrimaryWhenReplicaIsDown() throws Exception {
+        //IFEXISTS=TRUE 이므로 DB가 만들어지기 전까지는 커넥션을 얻지 못한다
+        DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:route_down_replica;IFEXISTS=TRUE", "sa", "");
+        Fixture fixture = new Fixture("route_down", replica, true);
+
+        Assertions.assertThat(fixture.readOnly()).isEqualTo("primary");
+        Assertions.assertThat(fixture.routing.getFallbacks()).isEqualTo(1);
+        Assertions.assertThat(fixture.health.isDown()).isTrue();
+
+        //replica가 살아나면 백그라운드 확인(retry-interval 마다)이 되살리고 다시 replica로 보낸다
+        try (Connection keepAlive = replica("route_down").getConnection()) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (fixture.health.isDown() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertThat(fixture.health.isDown()).isFalse();
+            Assertions.assertThat(fixture.readOnly()).isEqualTo("replica");
+        }
+    }
+
+    @Test
+    public void readYourWritesWithinRequest() {
+        Fixture fixture = new Fixture("route_ryw", replica("route_ryw"), true);
+
+        SqlExecutionContext request = new SqlExecutionContext();
+        SqlExecutionContext.push(request);
+        try {
+            Assertions.assertThat(fixture.readOnly()).isEqualTo("replica");
+            fixture.write();
+            Assertions.assertThat(fixture.readOnly()).isEqualTo("primary");
+        } finally {
+            SqlExecutionContext.pop(request);
+        }
+
+        //다음 요청은 다시 replica에서 읽는다
+        SqlExecutionContext next = new SqlExecutionContext();
+        SqlExecutionContext.push(next);
+        try {
+            Assertions.assertThat(fixture.readOnly()).isEqualTo("replica");
+        } finally {
+            SqlExecutionContext.pop(next);
+        }
+    }
+
+    @Test
+    public void readYourWritesDisabled() {
+        Fixture fixture = new Fixture("route_no_ryw", replica("route_no_ryw"), false);
+
+        SqlExecutionContext request = new SqlExecutionContext();
+        SqlExecutionContext.push(request);
+        try {
+            fixture.write();
+            Assertions.assertThat(fixture.readOnly()).isEqualTo("replica");
+        } finally {
+            SqlExecutionContext.pop(request);
+        }
+    }
+
+    private static DataSource replica(String name) {
+        DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:" + name + "_replica;DB_CLOSE_DELAY=-1", "sa", "");
+        init(replica, "replica");
+        return replica;
+    }
+
+    private static void init(DataSource dataSource, String name) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table route(name varchar(20))");
+        jdbcTemplate.update("insert into route values (?)", name);
+    }
+
+    static class Fixture {
+
+        static final long RETRY_INTERVAL_MILLIS = 50;
+
+        final ReplicaHealth health;
+        final ReadWriteRoutingDataSource routing;
+        final JdbcTemplate jdbcTemplate;
+        final TransactionTemplate readOnlyTx;
+        final TransactionTemplate tx;
+
+        Fixture(String name, DataSource replica, boolean readYourWrites) {
+            DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:" + name + "_primary;DB_CLOSE_DELAY=-1", "sa", "");
+            init(primary, "primary");
+
+            health = new ReplicaHealth(replica, RETRY_INTERVAL_MILLIS, 1);
+            routing = new ReadWriteRoutingDataSource(primary, replica, health, readYourWrites);
+            LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+            jdbcTemplate = new JdbcTemplate(dataSource);
+
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            tx = new TransactionTemplate(transactionManager);
+            readOnlyTx = new TransactionTemplate(transactionManager);
+            readOnlyTx.setReadOnly(true);
+        }
+
+        String readOnly() {
+            return readOnlyTx.execute(status -> jdbcTemplate.queryForObject("select name from route", String.class));
+        }
+
+        String readWrite() {
+            return tx.execute(status -> jdbcTemplate.queryForObject("select name from route", String.class));
+        }
+
+        void write() {
+            tx.executeWithoutResult(status -> jdbcTemplate.update("update route set name = name"));
+        }
+    }
+}
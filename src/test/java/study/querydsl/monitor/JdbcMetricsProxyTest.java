@@ -0,0 +1,154 @@
+package study.querydsl.monitor;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+class JdbcMetricsProxyTest {
+
+    @Test
+    public void recordStatementsAndRows() throws Exception {
+        DataSource dataSource = JdbcMetricsProxy.wrap(
+                new DriverManagerDataSource("jdbc:h2:mem:jdbc_metrics;DB_CLOSE_DELAY=-1", "sa", ""));
+
+        SqlExecutionContext context = new SqlExecutionContext();
+        SqlExecutionContext.push(context);
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table item(id bigint primary key)");
+                statement.executeUpdate("insert into item values (1), (2), (3)");
+            }
+            try (PreparedStatement statement = connection.prepareStatement("select id from item where id >= ?")) {
+                statement.setLong(1, 2);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getLong(1);
+                    }
+                }
+            }
+        } finally {
+            SqlExecutionContext.pop(context);
+        }
+
+        Assertions.assertThat(context.getStatements()).isEqualTo(3);
+        Assertions.assertThat(context.getRows()).isEqualTo(2);
+        Assertions.assertThat(context.getDbNanos()).isPositive();
+    }
+
+    @Test
+    public void notRecordedWithoutContext() throws Exception {
+        DataSource dataSource = JdbcMetricsProxy.wrap(
+                new DriverManagerDataSource("jdbc:h2:mem:jdbc_metrics_none", "sa", ""));
+        SqlExecutionContext context = new SqlExecutionContext();
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeQuery("select 1");
+        }
+
+        Assertions.assertThat(context.getStatements()).isZero();
+        Assertions.assertThat(JdbcMetricsProxy.wrap(dataSource)).isSameAs(dataSource);
+    }
+
+    @Test
+    public void recordPoolMetrics() throws Exception {
+        ConnectionPoolMetrics poolMetrics = new ConnectionPoolMetrics();
+        DataSource dataSource = JdbcMetricsProxy.wrap(
+                new DriverManagerDataSource("jdbc:h2:mem:jdbc_pool_metrics;DB_CLOSE_DELAY=-1", "sa", ""), poolMetrics);
+
+        Connection connection = dataSource.getConnection();
+        Assertions.assertThat(poolMetrics.snapshot().getActive()).isEqualTo(1);
+        for (int i = 0; i < 3; i++) {
+            try (PreparedStatement statement = connection.prepareStatement("select x from system_range(1, 10) where x = ?")) {
+                statement.setInt(1, i);
+                statement.executeQuery().close();
+            }
+        }
+        connection.prepareStatement("select 1").close();
+        connection.close();
+        connection.close();
+
+        ConnectionPoolMetrics.Snapshot snapshot = poolMetrics.reset();
+        Assertions.assertThat(snapshot.getAcquires()).isEqualTo(1);
+        Assertions.assertThat(snapshot.getActive()).isZero();
+        Assertions.assertThat(snapshot.getPeakActive()).isEqualTo(1);
+        Assertions.assertThat(snapshot.getHoldNanos()).isPositive();
+        Assertions.assertThat(snapshot.getPrepares())
+                .extracting("sql", "count")
+                .containsExactly(Assertions.tuple("select x from system_range(1, 10) where x = ?", 3L), Assertions.tuple("select 1", 1L));
+
+        Assertions.assertThat(poolMetrics.snapshot().getAcquires()).isZero();
+    }
+
+    @Test
+    public void recordPoolMetricsPerPool() throws Exception {
+        ConnectionPoolRegistry registry = new ConnectionPoolRegistry();
+        DataSource primaryPool = new DriverManagerDataSource("jdbc:h2:mem:jdbc_pool_primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource replicaPool = new DriverManagerDataSource("jdbc:h2:mem:jdbc_pool_replica;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource primary = JdbcMetricsProxy.wrap(primaryPool, registry.register("primary", primaryPool));
+        DataSource replica = JdbcMetricsProxy.wrap(replicaPool, registry.register("replica", replicaPool));
+
+        primary.getConnection().close();
+        replica.getConnection().close();
+        replica.getConnection().close();
+
+        Assertions.assertThat(registry.pools())
+                .extracting(pool -> pool.getName(), pool -> pool.getMetrics().snapshot().getAcquires())
+                .containsExactly(Assertions.tuple("primary", 1L), Assertions.tuple("replica", 2L));
+    }
+
+    @Test
+    public void rejectWhenContextCancelled() throws Exception {
+        DataSource dataSource = JdbcMetricsProxy.wrap(
+                new DriverManagerDataSource("jdbc:h2:mem:jdbc_cancelled", "sa", ""));
+
+        SqlExecutionContext context = new SqlExecutionContext();
+        context.cancel();
+        SqlExecutionContext.push(context);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            Assertions.assertThatThrownBy(() -> statement.executeQuery("select 1"))
+                    .isInstanceOf(SQLTimeoutException.class);
+        } finally {
+            SqlExecutionContext.pop(context);
+        }
+        Assertions.assertThat(context.getStatements()).isZero();
+    }
+
+    @Test
+    public void cancelRunningStatement() throws Exception {
+        DataSource dataSource = JdbcMetricsProxy.wrap(
+                new DriverManagerDataSource("jdbc:h2:mem:jdbc_cancel_running", "sa", ""));
+
+        SqlExecutionContext context = new SqlExecutionContext();
+        context.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200));
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        watchdog.schedule(context::cancel, 200, TimeUnit.MILLISECONDS);
+
+        SqlExecutionContext.push(context);
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            Assertions.assertThat(SqlExecutionContext.remainingMillis().getAsLong()).isBetween(0L, 200L);
+            //취소하지 않으면 수십 초 걸리는 쿼리
+            Assertions.assertThatThrownBy(() -> statement.executeQuery("select sum(x) from system_range(1, 10000000000)"))
+                    .isInstanceOf(SQLException.class);
+        } finally {
+            SqlExecutionContext.pop(context);
+            watchdog.shutdownNow();
+        }
+        Assertions.assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(10);
+        Assertions.assertThat(context.isCancelled()).isTrue();
+    }
+}
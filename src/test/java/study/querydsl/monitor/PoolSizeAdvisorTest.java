@@ -0,0 +1,48 @@
+package study.querydsl.monitor;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.PoolSizeAdvice;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+class PoolSizeAdvisorTest {
+
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    public void shrinkWhenOverProvisioned() {
+        //초당 100건 x 20ms 점유 = 평균 2개 사용, 최대 3개
+        ConnectionPoolMetrics.Snapshot window = window(1000, TimeUnit.MICROSECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(20), 3);
+
+        PoolSizeAdvice advice = PoolSizeAdvisor.advise(window, 20, 0);
+
+        Assertions.assertThat(advice.getAverageInUse()).isCloseTo(2.0, Assertions.within(0.01));
+        Assertions.assertThat(advice.getRecommendedPoolSize()).isEqualTo(4);
+    }
+
+    @Test
+    public void growWhenStarved() {
+        //풀 10개가 꽉 찼고 평균 15ms씩 기다렸다
+        ConnectionPoolMetrics.Snapshot window = window(2000, TimeUnit.MILLISECONDS.toNanos(15), TimeUnit.MILLISECONDS.toNanos(50), 10);
+
+        PoolSizeAdvice advice = PoolSizeAdvisor.advise(window, 10, 4);
+
+        Assertions.assertThat(advice.getAverageDemand()).isCloseTo(13.0, Assertions.within(0.01));
+        Assertions.assertThat(advice.getRecommendedPoolSize()).isEqualTo(20);
+        Assertions.assertThat(advice.getReason()).contains("starved");
+    }
+
+    @Test
+    public void noTraffic() {
+        PoolSizeAdvice advice = PoolSizeAdvisor.advise(window(0, 0, 0, 0), 10, 0);
+
+        Assertions.assertThat(advice.getRecommendedPoolSize()).isEqualTo(10);
+    }
+
+    private ConnectionPoolMetrics.Snapshot window(long acquires, long acquireNanosEach, long holdNanosEach, int peak) {
+        return new ConnectionPoolMetrics.Snapshot(WINDOW, acquires, acquires * acquireNanosEach, acquires * holdNanosEach,
+                0, peak, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList());
+    }
+}
@@ -0,0 +1,59 @@
+package study.querydsl.monitor;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class QueryDeadlineInterceptorTest {
+
+    QueryDeadlineInterceptor interceptor = new QueryDeadlineInterceptor(5000, 30000);
+
+    @Test
+    public void timeoutFromHeaderOrParameter() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        Assertions.assertThat(interceptor.timeoutMillis(request)).isEqualTo(5000);
+
+        request.setParameter(QueryDeadlineInterceptor.TIMEOUT_PARAMETER, "300");
+        Assertions.assertThat(interceptor.timeoutMillis(request)).isEqualTo(300);
+
+        //헤더가 우선
+        request.addHeader(QueryDeadlineInterceptor.TIMEOUT_HEADER, "1200");
+        Assertions.assertThat(interceptor.timeoutMillis(request)).isEqualTo(1200);
+    }
+
+    @Test
+    public void invalidOrTooLargeTimeout() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter(QueryDeadlineInterceptor.TIMEOUT_PARAMETER, "abc");
+        Assertions.assertThat(interceptor.timeoutMillis(request)).isEqualTo(5000);
+
+        request.setParameter(QueryDeadlineInterceptor.TIMEOUT_PARAMETER, "-1");
+        Assertions.assertThat(interceptor.timeoutMillis(request)).isEqualTo(5000);
+
+        request.setParameter(QueryDeadlineInterceptor.TIMEOUT_PARAMETER, "600000");
+        Assertions.assertThat(interceptor.timeoutMillis(request)).isEqualTo(30000);
+    }
+
+    @Test
+    public void deadlineSetOnRequestContext() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(QueryDeadlineInterceptor.TIMEOUT_HEADER, "50");
+        SqlExecutionContext context = new SqlExecutionContext();
+        request.setAttribute(SqlMetricsInterceptor.CONTEXT_ATTRIBUTE, context);
+
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        SqlExecutionContext.push(context);
+        try {
+            Assertions.assertThat(SqlExecutionContext.remainingMillis().getAsLong()).isBetween(0L, 50L);
+            Thread.sleep(300);
+            //watchdog이 취소했다
+            Assertions.assertThat(context.isCancelled()).isTrue();
+            Assertions.assertThat(SqlExecutionContext.remainingMillis().getAsLong()).isZero();
+        } finally {
+            SqlExecutionContext.pop(context);
+            interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+            interceptor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AgeIdIndexTest {
+
+    @Test
+    public void rangeLookup() {
+        AgeIdIndex index = new AgeIdIndex(2); //insert 중 배열 확장도 같이 확인한다
+        index.insert(30, 3L);
+        index.insert(10, 1L);
+        index.insert(20, 5L);
+        index.insert(20, 2L);
+        index.insert(40, 4L);
+
+        Assertions.assertThat(index.size()).isEqualTo(5);
+        Assertions.assertThat(index.ids(20, 30)).containsExactly(2L, 5L, 3L);
+        Assertions.assertThat(index.ids(null, 15)).containsExactly(1L);
+        Assertions.assertThat(index.ids(35, null)).containsExactly(4L);
+        Assertions.assertThat(index.ids(null, null)).containsExactly(1L, 2L, 5L, 3L, 4L);
+        Assertions.assertThat(index.ids(21, 29)).isEmpty();
+        Assertions.assertThat(index.ids(30, 20)).isEmpty();
+        Assertions.assertThat(index.count(20, 30)).isEqualTo(3);
+        Assertions.assertThat(index.count(30, 20)).isEqualTo(0);
+    }
+
+    @Test
+    public void insertAndRemoveAreIdempotent() {
+        AgeIdIndex index = new AgeIdIndex();
+        Assertions.assertThat(index.insert(10, 1L)).isTrue();
+        Assertions.assertThat(index.insert(10, 1L)).isFalse();
+        index.insert(20, 2L);
+
+        Assertions.assertThat(index.remove(20, 1L)).isFalse();
+        Assertions.assertThat(index.remove(10, 1L)).isTrue();
+        Assertions.assertThat(index.remove(10, 1L)).isFalse();
+        Assertions.assertThat(index.ids(null, null)).containsExactly(2L);
+
+        Assertions.assertThat(index.removeById(2L)).isTrue();
+        Assertions.assertThat(index.removeById(2L)).isFalse();
+        Assertions.assertThat(index.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void appendKeepsOrder() {
+        AgeIdIndex index = new AgeIdIndex();
+        index.append(10, 1L);
+        index.append(10, 3L);
+        index.append(20, 2L);
+        index.append(10, 2L); //순서가 어긋나면 insert로 처리한다
+
+        Assertions.assertThat(index.ids(10, 10)).containsExactly(1L, 2L, 3L);
+
+        AgeIdIndex replaced = new AgeIdIndex();
+        replaced.replaceWith(index);
+        Assertions.assertThat(replaced.ids(null, null)).containsExactly(1L, 2L, 3L, 2L);
+    }
+}
@@ -0,0 +1,139 @@
+package study.querydsl.repository;
+
+import com.mysema.commons.lang.CloseableIterator;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberCursorSort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//조회 스레드는 인덱스를 만들지 않는다. reconcile(스케줄러)과 벌크 연산 뒤 rebuild 스레드에서만 만든다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:age_index;DB_CLOSE_DELAY=-1",
+        "member.age-index.enabled=true",
+        "member.age-index.reconcile-interval-ms=3600000"})
+class MemberAgeIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberAgeIndex memberAgeIndex;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void rebuildInBackgroundAfterBulkChange() throws Exception {
+        Long id = new TransactionTemplate(transactionManager).execute(status -> {
+            Member member = new Member("ageIndexMember", 15);
+            em.persist(member);
+            return member.getId();
+        });
+        memberAgeIndex.reconcile();
+
+        MemberSearchCondition teens = ageBetween(10, 19);
+        Assertions.assertThat(memberAgeIndex.candidates(teens)).containsExactly(id);
+
+        MemberSearchCondition all = new MemberSearchCondition();
+        memberJpaRepository.bulkAgePlus(all, 10, 100, BulkProgressListener.NONE);
+
+        MemberSearchCondition twenties = ageBetween(20, 29);
+        long[] candidates = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (candidates == null && System.nanoTime() < deadline) {
+            candidates = memberAgeIndex.candidates(twenties);
+            Thread.sleep(10);
+        }
+        Assertions.assertThat(candidates).containsExactly(id);
+        Assertions.assertThat(memberAgeIndex.candidates(teens)).isEmpty();
+    }
+
+    //벌크 연산 API를 거치지 않은 쓰기도 MemberWriteStatementInspector가 알려서 다시 만든다
+    @Test
+    public void rebuildAfterNativeWrite() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long id = tx.execute(status -> {
+            Member member = new Member("nativeWriteMember", 45);
+            em.persist(member);
+            return member.getId();
+        });
+        memberAgeIndex.reconcile();
+        Assertions.assertThat(memberAgeIndex.candidates(ageBetween(40, 49))).contains(id);
+
+        tx.executeWithoutResult(status -> em.createNativeQuery("update member set age = 55 where username = 'nativeWriteMember'")
+                .executeUpdate());
+
+        long[] candidates = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (candidates == null && System.nanoTime() < deadline) {
+            candidates = memberAgeIndex.candidates(ageBetween(50, 59));
+            Thread.sleep(10);
+        }
+        Assertions.assertThat(candidates).contains(id);
+        Assertions.assertThat(memberAgeIndex.candidates(ageBetween(40, 49))).doesNotContain(id);
+    }
+
+    //페이지/count/커서/export 조회도 search(cond)처럼 인덱스 후보로 좁힌다
+    @Test
+    public void pagedCursorAndExportSearchUseCandidates() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("pagedIndexMember1", 71));
+            em.persist(new Member("pagedIndexMember2", 72));
+            em.persist(new Member("pagedIndexMember3", 73));
+        });
+        memberAgeIndex.reconcile();
+
+        MemberSearchCondition seventies = ageBetween(70, 79);
+        Assertions.assertThat(memberAgeIndex.candidates(seventies)).hasSize(3);
+
+        Assertions.assertThat(memberJpaRepository.searchContent(seventies, PageRequest.of(0, 2))).hasSize(2);
+        Assertions.assertThat(memberJpaRepository.searchCount(seventies)).isEqualTo(3);
+
+        MemberCursorPage first = memberJpaRepository.searchByCursor(seventies, MemberCursorSort.AGE, null, 2);
+        Assertions.assertThat(first.getContent()).extracting("age").containsExactly(71, 72);
+        MemberCursorPage second = memberJpaRepository.searchByCursor(seventies, MemberCursorSort.AGE, first.getNextCursor(), 2);
+        Assertions.assertThat(second.getContent()).extracting("age").containsExactly(73);
+        Assertions.assertThat(second.isHasNext()).isFalse();
+
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        List<Integer> exported = readOnlyTx.execute(status -> {
+            List<Integer> ages = new ArrayList<>();
+            try (CloseableIterator<MemberTeamDto> rows = memberJpaRepository.iterate(seventies, 100)) {
+                rows.forEachRemaining(row -> ages.add(row.getAge()));
+            }
+            return ages;
+        });
+        Assertions.assertThat(exported).containsExactlyInAnyOrder(71, 72, 73);
+
+        //후보가 없으면 쿼리 없이 빈 결과
+        MemberSearchCondition nineties = ageBetween(90, 99);
+        Assertions.assertThat(memberAgeIndex.candidates(nineties)).isEmpty();
+        Assertions.assertThat(memberJpaRepository.searchCount(nineties)).isZero();
+        Assertions.assertThat(memberJpaRepository.searchContent(nineties, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    private MemberSearchCondition ageBetween(int goe, int loe) {
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setAgeGoe(goe);
+        cond.setAgeLoe(loe);
+        return cond;
+    }
+}
@@ -1,18 +1,38 @@
 package study.querydsl.repository;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.CacheStats;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberCursorSort;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.support.QueryCounter;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
 import javax.transaction.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 
 @SpringBootTest
@@ -24,6 +44,10 @@ class MemberJpaRepositoryTest {
 
     @Autowired MemberJpaRepository memberJpaRepository;
 
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Autowired MemberSearchQueryCache memberSearchQueryCache;
+
     @Test
     public void basicTest(){
         Member member = new Member("member1", 10);
@@ -78,4 +102,387 @@ class MemberJpaRepositoryTest {
 
 
 
-}
\ No newline at end of file
+    @Test
+    public void searchByCursorTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("member1", 30, teamA));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 20, teamA));
+        em.persist(new Member("member5", 40, teamA));
+
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setTeamName("teamA");
+
+        MemberCursorPage page1 = memberJpaRepository.searchByCursor(cond, MemberCursorSort.AGE, null, 2);
+        Assertions.assertThat(page1.getContent()).extracting("username").containsExactly("member2", "member3");
+        Assertions.assertThat(page1.isHasNext()).isTrue();
+
+        MemberCursorPage page2 = memberJpaRepository.searchByCursor(cond, MemberCursorSort.AGE, page1.getNextCursor(), 2);
+        Assertions.assertThat(page2.getContent()).extracting("username").containsExactly("member4", "member1");
+
+        MemberCursorPage page3 = memberJpaRepository.searchByCursor(cond, MemberCursorSort.AGE, page2.getNextCursor(), 2);
+        Assertions.assertThat(page3.getContent()).extracting("username").containsExactly("member5");
+        Assertions.assertThat(page3.getNextCursor()).isNull();
+
+        //정렬 기준이 다른 커서는 거부한다
+        Assertions.assertThatThrownBy(() ->
+                memberJpaRepository.searchByCursor(cond, MemberCursorSort.ID, page1.getNextCursor(), 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+
+
+    @Test
+    public void searchPageTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setTeamName("teamB");
+
+        Page<MemberTeamDto> result = memberJpaRepository.search(cond, PageRequest.of(0, 3));
+
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(2);
+        Assertions.assertThat(result.getContent()).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+
+        MemberSearchCondition ageCond = new MemberSearchCondition();
+        ageCond.setAgeGoe(20);
+
+        Page<MemberTeamDto> page = memberJpaRepository.search(ageCond, PageRequest.of(0, 2));
+
+        Assertions.assertThat(page.getContent()).hasSize(2);
+        Assertions.assertThat(page.getTotalElements()).isGreaterThanOrEqualTo(3);
+    }
+
+
+
+    //Pageable 정렬을 따르고, 값이 같으면 member.id 순서로 페이지 경계가 고정된다
+    @Test
+    public void searchPageSortTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("sortMember1", 91, teamA));
+        em.persist(new Member("sortMember2", 92, teamA));
+        em.persist(new Member("sortMember3", 92, teamA));
+        em.persist(new Member("sortMember4", 92, teamA));
+
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setUsernameStartsWith("sortMember");
+
+        Page<MemberTeamDto> first = memberJpaRepository.search(cond, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age")));
+        Page<MemberTeamDto> second = memberJpaRepository.search(cond, PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "age")));
+
+        Assertions.assertThat(first.getContent()).extracting("username").containsExactly("sortMember2", "sortMember3");
+        Assertions.assertThat(second.getContent()).extracting("username").containsExactly("sortMember4", "sortMember1");
+
+        Assertions.assertThatThrownBy(() -> memberJpaRepository.search(cond, PageRequest.of(0, 2, Sort.by("password"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void searchQueryTemplateTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, null));
+
+        //64가지 조건 조합 모두 BooleanBuilder 버전과 같은 결과를 내야 한다
+        for (int shape = 0; shape < MemberSearchQueryCache.SHAPE_COUNT; shape++) {
+            MemberSearchCondition cond = new MemberSearchCondition();
+            if ((shape & MemberSearchQueryCache.USERNAME) != 0) cond.setUsername("member2");
+            if ((shape & MemberSearchQueryCache.USERNAME_STARTS_WITH) != 0) cond.setUsernameStartsWith("mem");
+            if ((shape & MemberSearchQueryCache.USERNAME_CONTAINS) != 0) cond.setUsernameContains("ber2");
+            if ((shape & MemberSearchQueryCache.TEAM_NAME) != 0) cond.setTeamName("teamA");
+            if ((shape & MemberSearchQueryCache.AGE_GOE) != 0) cond.setAgeGoe(15);
+            if ((shape & MemberSearchQueryCache.AGE_LOE) != 0) cond.setAgeLoe(35);
+
+            Assertions.assertThat(memberJpaRepository.search(cond))
+                    .usingFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchByBuilder(cond));
+        }
+
+        CacheStats before = memberSearchQueryCache.stats();
+        memberJpaRepository.search(new MemberSearchCondition());
+        CacheStats after = memberSearchQueryCache.stats();
+
+        Assertions.assertThat(after.getSize()).isEqualTo(MemberSearchQueryCache.SHAPE_COUNT);
+        Assertions.assertThat(after.getHits()).isEqualTo(before.getHits() + 1);
+        Assertions.assertThat(after.getMisses()).isEqualTo(before.getMisses());
+    }
+
+    @Test
+    public void usernameLikeEscapeTest(){
+        em.persist(new Member("a_b%c", 10));
+        em.persist(new Member("axbyc", 20));
+
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernameStartsWith("a_");
+        Assertions.assertThat(memberJpaRepository.search(prefix))
+                .extracting("username").containsExactly("a_b%c");
+
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("b%");
+        Assertions.assertThat(memberJpaRepository.search(contains))
+                .extracting("username").containsExactly("a_b%c");
+    }
+
+
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    @Test
+    public void teamLoadingQueryCountTest(){
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i, 10 * i, team));
+            em.persist(new Member("member" + i, 10 * i + 1, team));
+        }
+        em.flush();
+        em.clear();
+
+        QueryCounter counter = new QueryCounter(emf);
+
+        //fetch join은 member와 team을 한 번에 가져온다
+        counter.reset();
+        memberJpaRepository.findAllWithTeam_Querydsl().forEach(m -> m.getTeam().getName());
+        memberJpaRepository.findByUsernameWithTeam("member1").forEach(m -> m.getTeam().getName());
+        counter.assertCount(2);
+        em.clear();
+
+        //batch fetch로 team 5개를 IN 쿼리 한 번에 초기화한다
+        counter.reset();
+        memberJpaRepository.findAll().forEach(m -> m.getTeam().getName());
+        counter.assertAtMost(2);
+        em.clear();
+
+        counter.reset();
+        memberJpaRepository.findByUsername_Querydsl("member3").forEach(m -> m.getTeam().getName());
+        counter.assertAtMost(2);
+    }
+
+
+
+    @Test
+    public void findAllByIdsTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Member member = new Member("member" + i, i % 100, teamA);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+
+        QueryCounter counter = new QueryCounter(emf);
+
+        //입력 순서 유지, 중복/null/없는 id 제외
+        counter.reset();
+        List<Member> few = memberJpaRepository.findAllByIds(
+                Arrays.asList(ids.get(2), ids.get(0), null, ids.get(2), -1L, ids.get(1)));
+        Assertions.assertThat(few).extracting("id").containsExactly(ids.get(2), ids.get(0), ids.get(1));
+        few.forEach(m -> m.getTeam().getName());
+        counter.assertCount(1);
+        em.clear();
+
+        //512개씩 나눠서 두 번 조회한다
+        counter.reset();
+        List<Long> reversed = new ArrayList<>(ids);
+        Collections.reverse(reversed);
+        List<Member> all = memberJpaRepository.findAllByIds(reversed);
+        Assertions.assertThat(all).extracting("id").containsExactlyElementsOf(reversed);
+        counter.assertCount(2);
+
+        Assertions.assertThat(memberJpaRepository.findAllByIds(Collections.emptyList())).isEmpty();
+    }
+
+    //호출한 쪽 트랜잭션(클래스의 @Transactional)에 참여하는 경우. 끝나면 영속성 컨텍스트를 비운다
+    @Test
+    public void bulkInChunksTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 * i, teamA));
+        }
+        Member memberB = new Member("memberB", 10, teamB);
+        em.persist(memberB);
+
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setTeamName("teamA");
+
+        List<Long> progress = new ArrayList<>();
+        long updated = memberJpaRepository.bulkAgePlus(cond, 1, 2,
+                (completed, total, affected) -> progress.add(affected));
+
+        Assertions.assertThat(updated).isEqualTo(5);
+        Assertions.assertThat(progress).hasSize(3).endsWith(5L);
+
+        //영속성 컨텍스트가 비워졌으므로 DB 값을 다시 읽는다
+        Assertions.assertThat(memberJpaRepository.findByUsername("member4").get(0).getAge()).isEqualTo(41);
+        Assertions.assertThat(memberJpaRepository.findByUsername("memberB").get(0).getAge()).isEqualTo(10);
+
+        long moved = memberJpaRepository.bulkChangeTeam(cond, teamB.getId(), 100, BulkProgressListener.NONE);
+        Assertions.assertThat(moved).isEqualTo(5);
+        Assertions.assertThat(memberJpaRepository.findByUsername("member0").get(0).getTeam().getName()).isEqualTo("teamB");
+
+        MemberSearchCondition ageCond = new MemberSearchCondition();
+        ageCond.setAgeGoe(30);
+        ageCond.setTeamName("teamB");
+        long deleted = memberJpaRepository.bulkDelete(ageCond, 100, BulkProgressListener.NONE);
+        Assertions.assertThat(deleted).isEqualTo(2);
+        Assertions.assertThat(memberJpaRepository.findByUsername("member4")).isEmpty();
+    }
+
+
+
+    //트랜잭션 밖에서 호출하면 chunk마다 커밋되고 영속성 컨텍스트도 chunk 트랜잭션과 함께 닫힌다
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void bulkInChunksCommitPerChunkTest(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long teamId = tx.execute(status -> {
+            Team team = new Team("bulkChunkTeam");
+            em.persist(team);
+            for (int i = 0; i < 6; i++) {
+                em.persist(new Member("bulkChunkMember" + i, 10, team));
+            }
+            return team.getId();
+        });
+        TransactionTemplate newTx = new TransactionTemplate(transactionManager);
+        newTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        newTx.setReadOnly(true);
+
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setTeamName("bulkChunkTeam");
+        List<Long> progress = new ArrayList<>();
+        List<Long> committed = new ArrayList<>();
+        List<Boolean> persistenceContextOpen = new ArrayList<>();
+        try {
+            long updated = memberJpaRepository.bulkAgePlus(cond, 1, 2, (completed, total, affected) -> {
+                persistenceContextOpen.add(TransactionSynchronizationManager.isActualTransactionActive()
+                        || TransactionSynchronizationManager.getResourceMap().values().stream()
+                        .anyMatch(resource -> resource instanceof EntityManagerHolder));
+                progress.add(affected);
+                //다른 트랜잭션에서 지금까지 처리한 chunk가 이미 보인다
+                committed.add(newTx.execute(status -> em
+                        .createQuery("select count(m) from Member m where m.team.id = :teamId and m.age = 11", Long.class)
+                        .setParameter("teamId", teamId)
+                        .getSingleResult()));
+            });
+
+            Assertions.assertThat(updated).isEqualTo(6);
+            Assertions.assertThat(progress).hasSizeGreaterThanOrEqualTo(3).endsWith(6L);
+            Assertions.assertThat(committed).containsExactlyElementsOf(progress);
+            Assertions.assertThat(persistenceContextOpen).containsOnly(false);
+        } finally {
+            tx.executeWithoutResult(status -> {
+                em.createQuery("delete from Member m where m.team.id = :teamId")
+                        .setParameter("teamId", teamId)
+                        .executeUpdate();
+                em.remove(em.find(Team.class, teamId));
+            });
+        }
+    }
+
+    @Test
+    public void readOnlyFinderSnapshotTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        em.createQuery("select m from Member m", Member.class).getResultList();
+        long managedSlots = snapshotSlotsPerMember();
+        em.clear();
+
+        //쓰기 트랜잭션(테스트 트랜잭션)에 참여하면 읽기 전용 힌트를 붙이지 않으므로 수정이 반영된다
+        Member found = memberJpaRepository.findAll().get(0);
+        Assertions.assertThat(snapshotSlotsPerMember()).isEqualTo(managedSlots);
+        found.setUsername("renamed");
+        em.flush();
+        em.clear();
+        Assertions.assertThat(em.find(Member.class, found.getId()).getUsername()).isEqualTo("renamed");
+    }
+
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void readOnlyFinderSnapshotInReadOnlyTransactionTest(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long teamId = tx.execute(status -> {
+            Team teamA = new Team("readOnlyTeam");
+            em.persist(teamA);
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("readOnlyMember" + i, i, teamA));
+            }
+            return teamA.getId();
+        });
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        try {
+            Long managedSlots = tx.execute(status -> {
+                em.createQuery("select m from Member m", Member.class).getResultList();
+                return snapshotSlotsPerMember();
+            });
+            Long readOnlySlots = readOnlyTx.execute(status -> {
+                memberJpaRepository.findAll();
+                return snapshotSlotsPerMember();
+            });
+
+            //일반 조회는 회원마다 (age, team, username) 스냅샷 배열을 들고 있고, 읽기 전용 조회는 들고 있지 않다
+            System.out.println("snapshot references per member: managed = " + managedSlots + ", readOnly = " + readOnlySlots);
+            Assertions.assertThat(managedSlots).isEqualTo(3);
+            Assertions.assertThat(readOnlySlots).isZero();
+        } finally {
+            tx.executeWithoutResult(status -> {
+                em.createQuery("delete from Member m where m.team.id = :teamId")
+                        .setParameter("teamId", teamId)
+                        .executeUpdate();
+                em.remove(em.find(Team.class, teamId));
+            });
+        }
+    }
+
+    //영속성 컨텍스트의 Member 엔트리가 들고 있는 loadedState(스냅샷) 참조 수의 회원당 평균
+    private long snapshotSlotsPerMember() {
+        long members = 0;
+        long slots = 0;
+        for (Map.Entry<Object, EntityEntry> entry : em.unwrap(SessionImplementor.class)
+                .getPersistenceContext().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Member) {
+                members++;
+                Object[] loadedState = entry.getValue().getLoadedState();
+                slots += loadedState == null ? 0 : loadedState.length;
+            }
+        }
+        return members == 0 ? 0 : slots / members;
+    }
+
+
+
+}
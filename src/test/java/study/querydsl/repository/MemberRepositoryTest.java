@@ -1,11 +1,17 @@
 package study.querydsl.repository;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import study.querydsl.entity.Member;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.transaction.Transactional;
 
 import java.util.List;
@@ -18,6 +24,9 @@ class MemberRepositoryTest {
 
 
     @Autowired MemberRepository memberRepository;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired PlatformTransactionManager transactionManager;
 
     @Test
     public void basicTest(){
@@ -44,4 +53,31 @@ class MemberRepositoryTest {
 
     }
 
-}
\ No newline at end of file
+    //2차 캐시(Member)와 query cache(findByUsername)는 트랜잭션(영속성 컨텍스트)이 달라도 DB를 다시 조회하지 않는다
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void secondLevelAndQueryCacheHit(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long id = tx.execute(status -> memberRepository.save(new Member("cachedMember", 10)).getId());
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        try {
+            for (int i = 0; i < 2; i++) {
+                tx.executeWithoutResult(status -> {
+                    Assertions.assertThat(em.find(Member.class, id)).isNotNull();
+                    Assertions.assertThat(memberRepository.findByUsername("cachedMember")).hasSize(1);
+                });
+            }
+
+            //insert 시 2차 캐시에 올라가므로 두 번 모두 캐시에서 읽는다
+            Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(2);
+            //첫 조회는 SQL을 실행해서 id 목록을 캐시에 넣고, 두 번째 조회는 query cache에서 꺼낸다
+            Assertions.assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+            Assertions.assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        } finally {
+            tx.executeWithoutResult(status -> memberRepository.deleteById(id));
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.engine.query.spi.HQLQueryPlan;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dataset.SyntheticDataset;
+import study.querydsl.dataset.SyntheticDatasetLoader;
+import study.querydsl.dataset.SyntheticDatasetSpec;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.transaction.Transactional;
+import java.util.Collections;
+
+//search의 조건 조합마다 Hibernate가 만든 SQL을 EXPLAIN 해서
+//member/team 어느 쪽도 table scan으로 떨어지지 않는지 확인한다.
+//조건이 없는 shape와 usernameContains(앞이 %인 LIKE)만으로 거르는 shape는 제외한다.
+//usernameContains는 MemberUsernameIndex(member.username-index.enabled)가 id 후보로 바꿔서 조회한다.
+//데이터는 SyntheticDataset으로 만들어서 큰 팀(team0), 흔한 이름(kim), 팀 없는 회원이 섞인 상태에서 확인한다.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:search_plan;DB_CLOSE_DELAY=-1")
+@Transactional
+class MemberSearchPlanTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSearchQueryCache memberSearchQueryCache;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void before() {
+        SyntheticDatasetSpec spec = new SyntheticDatasetSpec();
+        spec.setMembers(2000);
+        spec.setTeams(20);
+        new SyntheticDatasetLoader(em, new TransactionTemplate(transactionManager), 1000)
+                .load(new SyntheticDataset(spec));
+    }
+
+    @Test
+    public void noTableScanForAnySearchShape() {
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+
+        for (int shape = 1; shape < MemberSearchQueryCache.SHAPE_COUNT; shape++) {
+            if (shape == MemberSearchQueryCache.USERNAME_CONTAINS) {
+                continue;
+            }
+            HQLQueryPlan queryPlan = sessionFactory.getQueryPlanCache()
+                    .getHQLQueryPlan(memberSearchQueryCache.jpql(shape), false, Collections.emptyMap());
+            String sql = queryPlan.getSqlStrings()[0];
+
+            Query explain = em.createNativeQuery("EXPLAIN " + sql);
+            int position = 1;
+            //JPQL 템플릿의 where 절 순서와 같다
+            if ((shape & MemberSearchQueryCache.USERNAME) != 0) explain.setParameter(position++, "member7");
+            if ((shape & MemberSearchQueryCache.USERNAME_STARTS_WITH) != 0) explain.setParameter(position++, "member7%");
+            if ((shape & MemberSearchQueryCache.USERNAME_CONTAINS) != 0) explain.setParameter(position++, "%ber7%");
+            if ((shape & MemberSearchQueryCache.TEAM_NAME) != 0) explain.setParameter(position++, "team7");
+            if ((shape & MemberSearchQueryCache.AGE_GOE) != 0) explain.setParameter(position++, 20);
+            if ((shape & MemberSearchQueryCache.AGE_LOE) != 0) explain.setParameter(position++, 30);
+
+            String plan = String.valueOf(explain.getSingleResult());
+
+            Assertions.assertThat(plan.toUpperCase())
+                    .as("shape %s plan:%n%s", Integer.toBinaryString(shape), plan)
+                    .doesNotContain(".TABLESCAN");
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.datasource.ReadWriteRoutingDataSource;
+import study.querydsl.datasource.ReplicaHealth;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class MemberSearchResultCacheTest {
+
+    @Test
+    public void hitAfterNormalize(){
+        MemberSearchResultCache cache = new MemberSearchResultCache(10, 100, 60, true, 1000);
+        AtomicInteger loads = new AtomicInteger();
+
+        //공백뿐인 조건은 조건이 없는 것과 같다
+        cache.get(teamCond(null), () -> load(loads, 2));
+        List<MemberTeamDto> result = cache.get(teamCond("  "), () -> load(loads, 2));
+
+        Assertions.assertThat(result).hasSize(2);
+        Assertions.assertThat(loads.get()).isEqualTo(1);
+        Assertions.assertThat(cache.stats().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void untrimmedValueIsDifferentKey(){
+        MemberSearchResultCache cache = new MemberSearchResultCache(10, 100, 60, true, 1000);
+        AtomicInteger loads = new AtomicInteger();
+
+        //쿼리는 " teamA "로 실행되어 결과가 없으므로 "teamA"의 결과를 돌려주면 안 된다
+        cache.get(teamCond("teamA"), () -> load(loads, 2));
+        List<MemberTeamDto> result = cache.get(teamCond(" teamA "), () -> load(loads, 0));
+
+        Assertions.assertThat(result).isEmpty();
+        Assertions.assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidateOnWrite(){
+        MemberSearchResultCache cache = new MemberSearchResultCache(10, 100, 60, true, 1000);
+        MemberWriteStatementInspector inspector = new MemberWriteStatementInspector(cache);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(teamCond("teamA"), () -> load(loads, 1));
+        inspector.inspect("select member0_.member_id from member member0_");
+        cache.get(teamCond("teamA"), () -> load(loads, 1));
+        Assertions.assertThat(loads.get()).isEqualTo(1);
+
+        inspector.inspect("update member set username=? where age<?");
+        cache.get(teamCond("teamA"), () -> load(loads, 1));
+        Assertions.assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void notifyIndexesOnlyForBulkMemberWrite(){
+        MemberWriteStatementInspector inspector = new MemberWriteStatementInspector(
+                new MemberSearchResultCache(10, 100, 60, true, 1000));
+        List<String> notified = new ArrayList<>();
+        inspector.addBulkWriteListener(notified::add);
+
+        //엔티티 flush SQL은 MemberChangedEvent로 반영되므로 알리지 않는다
+        inspector.inspect("insert into member (age, team_id, username, member_id) values (?, ?, ?, ?)");
+        inspector.inspect("update member set age=?, team_id=?, username=? where member_id=?");
+        inspector.inspect("delete from member where member_id=?");
+        inspector.inspect("update team set name=? where team_id=?");
+        Assertions.assertThat(notified).isEmpty();
+
+        inspector.inspect("update member set age=age+? where member_id between ? and ?");
+        inspector.inspect("delete from member where team_id=?");
+        Assertions.assertThat(notified).hasSize(2);
+
+        Assertions.assertThat(MemberWriteStatementInspector.writesColumn(notified.get(0), "age")).isTrue();
+        Assertions.assertThat(MemberWriteStatementInspector.writesColumn(notified.get(0), "username")).isFalse();
+        Assertions.assertThat(MemberWriteStatementInspector.writesColumn(notified.get(1), "username")).isTrue();
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed(){
+        MemberSearchResultCache cache = new MemberSearchResultCache(2, 100, 60, true, 1000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(teamCond("teamA"), () -> load(loads, 1));
+        cache.get(teamCond("teamB"), () -> load(loads, 1));
+        cache.get(teamCond("teamA"), () -> load(loads, 1));
+        cache.get(teamCond("teamC"), () -> load(loads, 1));
+
+        //teamB가 가장 오래 사용되지 않았으므로 제거된다
+        cache.get(teamCond("teamA"), () -> load(loads, 1));
+        Assertions.assertThat(loads.get()).isEqualTo(3);
+        cache.get(teamCond("teamB"), () -> load(loads, 1));
+        Assertions.assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void evictByRowLimit(){
+        MemberSearchResultCache cache = new MemberSearchResultCache(10, 3, 60, true, 1000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(teamCond("teamA"), () -> load(loads, 2));
+        cache.get(teamCond("teamB"), () -> load(loads, 2));
+
+        Assertions.assertThat(cache.stats().getSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void skipReplicaResultWithinLagAfterInvalidate() throws Exception {
+        DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:cache_lag_primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:cache_lag_replica;DB_CLOSE_DELAY=-1", "sa", "");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                primary, replica, new ReplicaHealth(replica, 1000, 1), false);
+        MemberSearchResultCache cache = new MemberSearchResultCache(10, 100, 60, true, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.invalidateAll();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            //replica에서 읽은 결과는 쓰기 이전 값일 수 있으므로 캐시에 넣지 않는다
+            cache.get(teamCond("teamA"), () -> readVia(routing, loads));
+            cache.get(teamCond("teamA"), () -> readVia(routing, loads));
+            Assertions.assertThat(loads.get()).isEqualTo(2);
+            Assertions.assertThat(routing.getReplicaConnections()).isEqualTo(2);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+
+        //primary에서 읽은 결과는 바로 캐시한다
+        cache.get(teamCond("teamA"), () -> readVia(routing, loads));
+        cache.get(teamCond("teamA"), () -> readVia(routing, loads));
+        Assertions.assertThat(loads.get()).isEqualTo(3);
+        Assertions.assertThat(routing.getPrimaryConnections()).isEqualTo(1);
+    }
+
+    //바깥 readOnly 트랜잭션이 이미 replica 커넥션을 얻었으면 loader는 새 커넥션을 얻지 않고 그 커넥션을 다시 쓴다.
+    //이 경우도 replica에서 읽은 결과로 보고 lag 동안 캐시에 넣지 않는다
+    @Test
+    public void skipResultReadThroughOuterReplicaTransaction() {
+        DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:cache_outer_primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:cache_outer_replica;DB_CLOSE_DELAY=-1", "sa", "");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                primary, replica, new ReplicaHealth(replica, 1000, 1), false);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new LazyConnectionDataSourceProxy(routing));
+        TransactionTemplate readOnlyTx = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        readOnlyTx.setReadOnly(true);
+        MemberSearchResultCache cache = new MemberSearchResultCache(10, 100, 60, true, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.invalidateAll();
+        readOnlyTx.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("select 1", Integer.class);
+            Assertions.assertThat(ReadWriteRoutingDataSource.isCurrentTransactionOnReplica()).isTrue();
+
+            Supplier<List<MemberTeamDto>> loader = () -> {
+                jdbcTemplate.queryForObject("select 1", Integer.class);
+                return load(loads, 1);
+            };
+            cache.get(teamCond("teamA"), loader);
+            cache.get(teamCond("teamA"), loader);
+        });
+
+        Assertions.assertThat(loads.get()).isEqualTo(2);
+        Assertions.assertThat(routing.getReplicaConnections()).isEqualTo(1);
+        Assertions.assertThat(ReadWriteRoutingDataSource.isCurrentTransactionOnReplica()).isFalse();
+    }
+
+    private List<MemberTeamDto> readVia(DataSource dataSource, AtomicInteger loads) {
+        try (Connection connection = dataSource.getConnection()) {
+            return load(loads, 1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MemberSearchCondition teamCond(String teamName) {
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setTeamName(teamName);
+        return cond;
+    }
+
+    private List<MemberTeamDto> load(AtomicInteger loads, int rows) {
+        loads.incrementAndGet();
+        List<MemberTeamDto> result = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            result.add(new MemberTeamDto((long) i, "member" + i, i, null, null));
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
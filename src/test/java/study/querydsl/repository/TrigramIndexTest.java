@@ -0,0 +1,53 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+
+    @Test
+    public void candidates() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1L, "member1");
+        index.add(2L, "member12");
+        index.add(3L, "admin");
+        index.add(4L, "Member3");
+
+        Assertions.assertThat(index.candidates("mber1", 100)).containsExactly(1L, 2L);
+        Assertions.assertThat(index.candidates("mem", 100)).containsExactly(1L, 2L);
+        Assertions.assertThat(index.candidates("Mem", 100)).containsExactly(4L); //대소문자 구분
+        Assertions.assertThat(index.candidates("xyz", 100)).isEmpty();
+
+        //trigram 교집합은 상위 집합이다: "abc-bcd"는 "abcd"를 포함하지 않지만 후보가 된다 (LIKE로 다시 거른다)
+        index.add(5L, "abc-bcd");
+        Assertions.assertThat(index.candidates("abcd", 100)).containsExactly(5L);
+    }
+
+    @Test
+    public void fallBackWhenTooShortOrTooMany() {
+        TrigramIndex index = new TrigramIndex();
+        for (long id = 1; id <= 10; id++) {
+            index.add(id, "member" + id);
+        }
+
+        Assertions.assertThat(index.candidates("me", 100)).isNull();
+        Assertions.assertThat(index.candidates("member", 5)).isNull();
+        Assertions.assertThat(index.candidates("member1", 5)).containsExactly(1L, 10L);
+    }
+
+    @Test
+    public void updateAndRemove() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1L, "alpha");
+        index.add(2L, "alpine");
+
+        index.remove(1L, "alpha");
+        index.add(1L, "gamma");
+        Assertions.assertThat(index.candidates("alp", 100)).containsExactly(2L);
+        Assertions.assertThat(index.candidates("amm", 100)).containsExactly(1L);
+
+        index.removeById(2L);
+        Assertions.assertThat(index.candidates("alp", 100)).isEmpty();
+        Assertions.assertThat(index.gramCount()).isEqualTo(TrigramIndex.grams("gamma").size());
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+
+@SpringBootTest
+@Transactional
+class MemberExportServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberExportService memberExportService;
+
+    @Test
+    public void exportCsv(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("kim, \"junior\"", 20, teamA));
+        em.flush();
+
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setTeamName("teamA");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        memberExportService.export(cond, MemberExportFormat.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertThat(lines).hasSize(3);
+        Assertions.assertThat(lines[0]).isEqualTo("memberId,username,age,teamId,teamName");
+        Assertions.assertThat(lines).anyMatch(line -> line.contains(",\"kim, \"\"junior\"\"\",20,"));
+    }
+
+    @Test
+    public void exportNdjson(){
+        Team teamB = new Team("teamB");
+        em.persist(teamB);
+        em.persist(new Member("member3", 30, teamB));
+        em.flush();
+
+        MemberSearchCondition cond = new MemberSearchCondition();
+        cond.setTeamName("teamB");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        memberExportService.export(cond, MemberExportFormat.NDJSON, out);
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        Assertions.assertThat(body).contains("\"username\":\"member3\"").endsWith("\n");
+    }
+
+}
@@ -0,0 +1,90 @@
+package study.querydsl.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import study.querydsl.monitor.JdbcMetricsProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+class MemberQueryExecutorTest {
+
+    @Test
+    public void rejectWhenSaturated() throws Exception {
+        //커넥션 3개 중 2개 예약 -> 쿼리 스레드 1개, 대기 큐 없음
+        MemberQueryExecutor executor = new MemberQueryExecutor(3, 2, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> running = executor.submit(() -> {
+                await(release);
+                return "done";
+            });
+
+            Assertions.assertThatThrownBy(() -> executor.submit(() -> "rejected"))
+                    .isInstanceOf(TaskRejectedException.class);
+
+            release.countDown();
+            Assertions.assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void cancelRunningStatementOnTimeout() throws Exception {
+        DataSource dataSource = JdbcMetricsProxy.wrap(
+                new DriverManagerDataSource("jdbc:h2:mem:query_executor_timeout", "sa", ""));
+        MemberQueryExecutor executor = new MemberQueryExecutor(3, 2, 0);
+        CountDownLatch finished = new CountDownLatch(1);
+        try {
+            long start = System.nanoTime();
+            CompletableFuture<Long> running = executor.submit(() -> {
+                try {
+                    return slowSum(dataSource);
+                } finally {
+                    finished.countDown();
+                }
+            }, 200);
+
+            Assertions.assertThatThrownBy(() -> running.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(QueryTimeoutException.class);
+            //취소하지 않으면 수십 초 걸리는 쿼리. 작업 스레드가 statement 취소로 바로 풀려나야 한다
+            Assertions.assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(10);
+            Assertions.assertThat(executor.submit(() -> "next").get(5, TimeUnit.SECONDS)).isEqualTo("next");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private long slowSum(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select sum(x) from system_range(1, 10000000000)")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package study.querydsl.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.monitor.SqlExecutionContext;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+//count를 동시에 실행해도 순차 실행(MemberJpaRepository.search)과 같은 Page를 만드는지,
+//동시에 실행할 수 없는 경우 순차 실행으로 돌아가는지 확인한다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:member_search_service;DB_CLOSE_DELAY=-1",
+        "member.search-cache.enabled=false"})
+class MemberSearchServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void before() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < 25; i++) {
+                em.persist(new Member("searchServiceMember" + i, 20 + i));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @Test
+    public void parallelCountMatchesSequential() {
+        CountingExecutor executor = new CountingExecutor();
+        try {
+            MemberSearchService service = new MemberSearchService(memberJpaRepository, executor, dataSource);
+            MemberSearchCondition cond = new MemberSearchCondition();
+
+            //count가 필요한 첫 페이지, 중간 페이지, count가 필요 없는 마지막 페이지
+            for (Pageable pageable : new Pageable[]{PageRequest.of(0, 10), PageRequest.of(1, 10), PageRequest.of(2, 10)}) {
+                assertSamePage(service.searchPage(cond, pageable), memberJpaRepository.search(cond, pageable));
+            }
+            Assertions.assertThat(executor.submitted.get()).isEqualTo(3);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    //content만으로 Page를 만들 수 있으면 실행 중인 count를 취소한다
+    @Test
+    public void cancelCountWhenNotNeeded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<CompletableFuture<?>> count = new AtomicReference<>();
+        AtomicReference<SqlExecutionContext> countContext = new AtomicReference<>();
+        MemberQueryExecutor executor = new MemberQueryExecutor(3, 0, 10) {
+            @Override
+            public <T> CompletableFuture<T> submit(Supplier<T> query, SqlExecutionContext taskContext) {
+                CompletableFuture<T> future = super.submit(() -> {
+                    await(release);
+                    return query.get();
+                }, taskContext);
+                count.set(future);
+                countContext.set(taskContext);
+                return future;
+            }
+        };
+        try {
+            MemberSearchService service = new MemberSearchService(memberJpaRepository, executor, dataSource);
+            MemberSearchCondition cond = new MemberSearchCondition();
+
+            Page<MemberTeamDto> page = service.searchPage(cond, PageRequest.of(0, 100));
+
+            Assertions.assertThat(page.getTotalElements()).isEqualTo(25);
+            Assertions.assertThat(count.get().isCancelled()).isTrue();
+            Assertions.assertThat(countContext.get().isCancelled()).isTrue();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    //다른 커넥션에서는 호출한 쪽 트랜잭션의 커밋 전 데이터가 보이지 않는다
+    @Test
+    public void sequentialInsideTransaction() {
+        CountingExecutor executor = new CountingExecutor();
+        try {
+            MemberSearchService service = new MemberSearchService(memberJpaRepository, executor, dataSource);
+            MemberSearchCondition cond = new MemberSearchCondition();
+
+            Page<MemberTeamDto> page = new TransactionTemplate(transactionManager).execute(status -> {
+                em.persist(new Member("uncommittedMember", 99));
+                return service.searchPage(cond, PageRequest.of(1, 10));
+            });
+
+            Assertions.assertThat(page.getTotalElements()).isEqualTo(26);
+            Assertions.assertThat(executor.submitted.get()).isZero();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void sequentialWithoutIdleThread() {
+        CountingExecutor executor = new CountingExecutor() {
+            @Override
+            public boolean hasIdleThread() {
+                return false;
+            }
+        };
+        try {
+            MemberSearchService service = new MemberSearchService(memberJpaRepository, executor, dataSource);
+            assertSequential(service, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void sequentialWithoutIdleConnection() {
+        CountingExecutor executor = new CountingExecutor();
+        try {
+            MemberSearchService service = new MemberSearchService(memberJpaRepository, executor, dataSource) {
+                @Override
+                boolean hasIdleConnection() {
+                    return false;
+                }
+            };
+            assertSequential(service, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void sequentialWhenRejected() {
+        MemberQueryExecutor executor = new MemberQueryExecutor(3, 0, 0) {
+            @Override
+            public <T> CompletableFuture<T> submit(Supplier<T> query, SqlExecutionContext taskContext) {
+                throw new TaskRejectedException("member query executor is full");
+            }
+        };
+        try {
+            MemberSearchService service = new MemberSearchService(memberJpaRepository, executor, dataSource);
+            MemberSearchCondition cond = new MemberSearchCondition();
+            Pageable pageable = PageRequest.of(1, 10);
+
+            assertSamePage(service.searchPage(cond, pageable), memberJpaRepository.search(cond, pageable));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void assertSequential(MemberSearchService service, CountingExecutor executor) {
+        MemberSearchCondition cond = new MemberSearchCondition();
+        Pageable pageable = PageRequest.of(1, 10);
+        assertSamePage(service.searchPage(cond, pageable), memberJpaRepository.search(cond, pageable));
+        Assertions.assertThat(executor.submitted.get()).isZero();
+    }
+
+    private static void assertSamePage(Page<MemberTeamDto> actual, Page<MemberTeamDto> expected) {
+        Assertions.assertThat(actual.getContent()).isEqualTo(expected.getContent());
+        Assertions.assertThat(actual.getTotalElements()).isEqualTo(expected.getTotalElements());
+        Assertions.assertThat(actual.getTotalPages()).isEqualTo(expected.getTotalPages());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class CountingExecutor extends MemberQueryExecutor {
+
+        final AtomicInteger submitted = new AtomicInteger();
+
+        CountingExecutor() {
+            super(3, 0, 10);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> submit(Supplier<T> query, SqlExecutionContext taskContext) {
+            submitted.incrementAndGet();
+            return super.submit(query, taskContext);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class MemberTeamJsonWriterTest {
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    MemberTeamJsonWriter jsonWriter = new MemberTeamJsonWriter(objectMapper);
+
+    @Test
+    public void sameAsObjectMapper() throws Exception {
+        List<MemberTeamDto> rows = Arrays.asList(
+                new MemberTeamDto(1L, "member1", 10, 1L, "teamA"),
+                new MemberTeamDto(2L, "kim \"\\\" 한글", 20, null, null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jsonWriter.writeArray(rows, out);
+
+        Assertions.assertThat(out.toString(StandardCharsets.UTF_8.name()))
+                .isEqualTo(objectMapper.writeValueAsString(rows));
+    }
+
+    @Test
+    public void emptyList() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jsonWriter.writeArray(Collections.emptyList(), out);
+
+        Assertions.assertThat(out.toString(StandardCharsets.UTF_8.name())).isEqualTo("[]");
+    }
+
+    @Test
+    public void lineGenerator() throws Exception {
+        MemberTeamDto row1 = new MemberTeamDto(1L, "member1", 10, 1L, "teamA");
+        MemberTeamDto row2 = new MemberTeamDto(2L, "member2", 20, null, null);
+
+        StringWriter writer = new StringWriter();
+        JsonGenerator generator = jsonWriter.createLineGenerator(writer);
+        jsonWriter.writeRow(generator, row1);
+        generator.writeRaw('\n');
+        jsonWriter.writeRow(generator, row2);
+        generator.writeRaw('\n');
+        generator.flush();
+
+        Assertions.assertThat(writer.toString()).isEqualTo(
+                objectMapper.writeValueAsString(row1) + "\n" + objectMapper.writeValueAsString(row2) + "\n");
+    }
+}
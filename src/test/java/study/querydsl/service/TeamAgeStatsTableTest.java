@@ -0,0 +1,70 @@
+package study.querydsl.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+class TeamAgeStatsTableTest {
+
+    @Test
+    public void addAndRemove() {
+        TeamAgeStatsTable table = new TeamAgeStatsTable();
+        table.add(1L, 10);
+        table.add(1L, 20);
+        table.add(1L, 40);
+        table.add(2L, 30);
+        table.add(null, 99); //팀 없는 회원은 집계하지 않는다
+
+        table.remove(1L, 40);
+
+        Map<Long, TeamAgeStatsTable.Snapshot> snapshot = table.snapshot();
+        Assertions.assertThat(snapshot).containsOnlyKeys(1L, 2L);
+        TeamAgeStatsTable.Snapshot teamA = snapshot.get(1L);
+        Assertions.assertThat(teamA.count).isEqualTo(2);
+        Assertions.assertThat(teamA.sum).isEqualTo(30);
+        Assertions.assertThat(teamA.min).isEqualTo(10);
+        Assertions.assertThat(teamA.max).isEqualTo(20);
+
+        table.remove(2L, 30);
+        Assertions.assertThat(table.snapshot()).containsOnlyKeys(1L);
+    }
+
+    @Test
+    public void removeUnknownAgeIsIgnored() {
+        TeamAgeStatsTable table = new TeamAgeStatsTable();
+        table.add(1L, 10);
+
+        table.remove(1L, 50);
+        table.remove(3L, 10);
+
+        TeamAgeStatsTable.Snapshot teamA = table.snapshot().get(1L);
+        Assertions.assertThat(teamA.count).isEqualTo(1);
+        Assertions.assertThat(teamA.sum).isEqualTo(10);
+    }
+
+    @Test
+    public void replace() {
+        TeamAgeStatsTable table = new TeamAgeStatsTable();
+        table.add(1L, 10);
+
+        Map<Long, Map<Integer, Long>> ageCounts = new HashMap<>();
+        Map<Integer, Long> teamB = new HashMap<>();
+        teamB.put(20, 3L);
+        teamB.put(35, 1L);
+        ageCounts.put(2L, teamB);
+        table.replace(ageCounts);
+
+        Map<Long, TeamAgeStatsTable.Snapshot> snapshot = table.snapshot();
+        Assertions.assertThat(snapshot).containsOnlyKeys(2L);
+        Assertions.assertThat(snapshot.get(2L).count).isEqualTo(4);
+        Assertions.assertThat(snapshot.get(2L).sum).isEqualTo(95);
+        Assertions.assertThat(snapshot.get(2L).min).isEqualTo(20);
+        Assertions.assertThat(snapshot.get(2L).max).isEqualTo(35);
+
+        table.replace(Collections.emptyMap());
+        Assertions.assertThat(table.snapshot()).isEmpty();
+    }
+}
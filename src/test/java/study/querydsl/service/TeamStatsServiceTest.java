@@ -0,0 +1,90 @@
+package study.querydsl.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+//저장/수정/삭제가 커밋되면 재집계 없이 이벤트만으로 통계와 팀 이름이 맞는지 확인한다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:team_stats;DB_CLOSE_DELAY=-1",
+        "team.stats.reconcile-interval-ms=3600000"})
+class TeamStatsServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamStatsService teamStatsService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        teamStatsService.reconcile();
+    }
+
+    @Test
+    public void statsFollowCommittedChanges() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        teamStatsService.reconcile();
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        tx.executeWithoutResult(status -> {
+            em.persist(teamA);
+            em.persist(teamB);
+        });
+        Member member1 = memberRepository.save(new Member("member1", 10, teamA));
+        memberRepository.save(new Member("member2", 20, teamA));
+        Member member3 = memberRepository.save(new Member("member3", 30, teamB));
+
+        Assertions.assertThat(teamStatsService.stats()).containsExactly(
+                new TeamStatsDto("teamA", 2, 30, 20, 10),
+                new TeamStatsDto("teamB", 1, 30, 30, 30));
+
+        //팀과 나이를 바꾸면 이전 팀에서 빠지고 새 팀에 들어간다
+        tx.executeWithoutResult(status -> {
+            Member member = memberRepository.findById(member1.getId()).get();
+            member.setAge(40);
+            member.setTeam(em.getReference(Team.class, teamB.getId()));
+        });
+        Assertions.assertThat(teamStatsService.stats()).containsExactly(
+                new TeamStatsDto("teamA", 1, 20, 20, 20),
+                new TeamStatsDto("teamB", 2, 70, 40, 30));
+
+        memberRepository.deleteById(member3.getId());
+        Assertions.assertThat(teamStatsService.stats()).containsExactly(
+                new TeamStatsDto("teamA", 1, 20, 20, 20),
+                new TeamStatsDto("teamB", 1, 40, 40, 40));
+
+        //팀 이름은 Team 변경 이벤트로 바뀐다
+        tx.executeWithoutResult(status -> em.find(Team.class, teamB.getId()).setName("teamC"));
+        Assertions.assertThat(teamStatsService.stats()).containsExactly(
+                new TeamStatsDto("teamA", 1, 20, 20, 20),
+                new TeamStatsDto("teamC", 1, 40, 40, 40));
+
+        //재집계해도 결과가 같다
+        teamStatsService.reconcile();
+        Assertions.assertThat(teamStatsService.stats()).containsExactly(
+                new TeamStatsDto("teamA", 1, 20, 20, 20),
+                new TeamStatsDto("teamC", 1, 40, 40, 40));
+    }
+}
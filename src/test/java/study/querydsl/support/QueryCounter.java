@@ -0,0 +1,35 @@
+package study.querydsl.support;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+
+//Hibernate statistics의 prepared statement 수로 테스트 구간에서 나간 SQL 수를 센다.
+//hibernate.generate_statistics: true 가 필요하다.
+public class QueryCounter {
+
+    private final Statistics statistics;
+
+    public QueryCounter(EntityManagerFactory emf) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public QueryCounter reset() {
+        statistics.clear();
+        return this;
+    }
+
+    public long count() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    public void assertCount(long expected) {
+        Assertions.assertThat(count()).as("executed statements").isEqualTo(expected);
+    }
+
+    public void assertAtMost(long max) {
+        Assertions.assertThat(count()).as("executed statements").isLessThanOrEqualTo(max);
+    }
+}